@@ -0,0 +1,100 @@
+package CalendarBenchmarks;
+
+import CalendarCore.alerts.Alert;
+import CalendarCore.alerts.AlertSystem;
+import CalendarCore.calendar.CalendarSystem;
+import CalendarCore.dates.DateTime;
+import CalendarCore.events.EventSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polling a large calendar for alerts as the clock ticks, as the alert tracker does, and looking up the alerts at one
+ * time the way CalendarSystem.getAlertAtTime does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlertBenchmark {
+
+    /**
+     * The length of a tick of the clock
+     */
+    private static final long TICK = 60 * 1000L;
+
+    @Param({"1000", "10000"})
+    public int singleEvents;
+
+    @Param({"200"})
+    public int alerts;
+
+    private CalendarSystem cs;
+
+    private EventSystem es;
+
+    private AlertSystem as;
+
+    private long yearStart;
+
+    private long yearEnd;
+
+    /**
+     * The start of the next tick polled
+     */
+    private long now;
+
+    @Setup
+    public void setUp() {
+        cs = new CalendarSystem("Benchmark");
+        new SyntheticCalendars(singleEvents, 2, 20, alerts, 0, 42).fill(cs);
+        es = cs.getEventSystem();
+        as = cs.getAlertSystem();
+        yearStart = new DateTime(SyntheticCalendars.YEAR, 0, 1, 0, 0).getTimeInMillis();
+        yearEnd = new DateTime(SyntheticCalendars.YEAR + 1, 0, 1, 0, 0).getTimeInMillis();
+        now = yearStart;
+    }
+
+    /**
+     * The alerts due in the next minute of the year, starting over at the end of it
+     */
+    @Benchmark
+    public ArrayList<Alert> pollTick() {
+        DateTime start = new DateTime();
+        start.setTimeInMillis(now);
+        now += TICK;
+        if (now >= yearEnd) {
+            now = yearStart;
+        }
+        DateTime end = new DateTime();
+        end.setTimeInMillis(now);
+        synchronized (es) {
+            return as.getDueAlerts(es.getListOfEvents(), es.getListOfGenerators(), start, end);
+        }
+    }
+
+    @Benchmark
+    public ArrayList<Alert> alertsAtTime() {
+        DateTime time = new DateTime();
+        time.setTimeInMillis(now);
+        now += TICK;
+        if (now >= yearEnd) {
+            now = yearStart;
+        }
+        return cs.getAlertAtTime(time);
+    }
+}
@@ -0,0 +1,69 @@
+package CalendarBenchmarks;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The times taken by each kind of operation, kept in full so that their percentiles are exact
+ */
+class Latencies {
+
+    /**
+     * The times of each operation in nanoseconds, by the name of the operation, in the order first recorded
+     */
+    private final LinkedHashMap<String, long[]> times = new LinkedHashMap<>();
+
+    /**
+     * The number of times recorded for each operation
+     */
+    private final LinkedHashMap<String, Integer> counts = new LinkedHashMap<>();
+
+    /**
+     * @param operation The name of the operation
+     * @param startNanos The System.nanoTime at which it started. It ended now.
+     */
+    void record(String operation, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        long[] opTimes = times.computeIfAbsent(operation, k -> new long[64]);
+        int count = counts.getOrDefault(operation, 0);
+        if (count == opTimes.length) {
+            opTimes = Arrays.copyOf(opTimes, count * 2);
+            times.put(operation, opTimes);
+        }
+        opTimes[count] = nanos;
+        counts.put(operation, count + 1);
+    }
+
+    /**
+     * Prints the number of times each operation was done and the mean, percentiles and maximum of its times
+     */
+    void print() {
+        System.out.printf("%-14s %8s %10s %10s %10s %10s %10s%n", "operation", "count", "mean ms", "p50 ms",
+                "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, long[]> entry : times.entrySet()) {
+            int count = counts.get(entry.getKey());
+            long[] sorted = Arrays.copyOf(entry.getValue(), count);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long t : sorted) {
+                total += t;
+            }
+            System.out.printf("%-14s %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n", entry.getKey(), count,
+                    millis(total / count), millis(percentile(sorted, 50)), millis(percentile(sorted, 90)),
+                    millis(percentile(sorted, 99)), millis(sorted[count - 1]));
+        }
+    }
+
+    /**
+     * @return The smallest time at least p percent of the times are no greater than
+     */
+    private static long percentile(long[] sorted, int p) {
+        int rank = (int) Math.ceil(sorted.length * p / 100.0);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,199 @@
+package CalendarBenchmarks;
+
+import CalendarCore.SaveHandler;
+import CalendarCore.Searcher;
+import CalendarCore.alerts.Alert;
+import CalendarCore.calendar.CalendarSystem;
+import CalendarCore.dates.DateTime;
+import CalendarCore.events.Event;
+import CalendarCore.events.EventSystem;
+import CalendarCore.exceptions.CalendarNotInTheSystemException;
+import CalendarCore.exceptions.InvalidInputException;
+import CalendarCore.metrics.Metrics;
+import CalendarCore.search.CalendarSearch;
+import CalendarCore.users.User;
+import CalendarCore.users.Users;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Builds a large save file of made up users, starts from it the way the application does, and replays the same
+ * session for many of the users without a window: logging in, paging through the months and weeks of the year,
+ * searching, letting the clock run with the alerts checked at each tick, and sharing an event, which is journaled.
+ * Prints how long each step took, the percentiles of the time of each operation, and the metrics of the calendar.
+ * <p>
+ * Usage: LoadTest [users] [calendars per user] [events per calendar] [sessions]
+ */
+public class LoadTest {
+
+    /**
+     * The clock ticks of each session, a minute each
+     */
+    private static final int TICKS = 60;
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private static final String[] SEARCHES = {"meeting", "lunch review", "pro", "dentist call"};
+
+    private final Latencies latencies = new Latencies();
+
+    private final Searcher searcher = new Searcher();
+
+    private final Random random = new Random(7);
+
+    private Users users;
+
+    private SaveHandler saveHandler;
+
+    /**
+     * The first day of each month of the year, and the last day of its month view 35 days later
+     */
+    private final DateTime[] monthStarts = new DateTime[12], monthEnds = new DateTime[12];
+
+    public static void main(String[] args) throws Throwable {
+        int numUsers = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int numCalendars = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int numEvents = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int sessions = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+
+        Path file = Files.createTempFile("users", ".dcal");
+        try {
+            new LoadTest().run(file, numUsers, numCalendars, numEvents, sessions);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(Path.of(file + ".journal"));
+        }
+    }
+
+    private void run(Path file, int numUsers, int numCalendars, int numEvents, int sessions) throws Throwable {
+        System.out.println(numUsers + " users, " + numCalendars + " calendars each, " + numEvents
+                + " events per calendar, " + sessions + " sessions");
+
+        long t0 = System.nanoTime();
+        Users generated = new Users();
+        SyntheticCalendars calendars = new SyntheticCalendars(numEvents, 1, 3, numEvents / 5, numEvents / 20, 42);
+        for (int u = 0; u < numUsers; u++) {
+            generated.createNewUser(calendars.user("user" + u, numCalendars));
+        }
+        long t1 = System.nanoTime();
+        SaveHandler writer = new SaveHandler();
+        writer.setUserPath(file.toString());
+        writer.saveUserFile(generated.getAllUsers());
+        long t2 = System.nanoTime();
+        generated = null;
+
+        // Starts over from the save file, as the application does
+        saveHandler = new SaveHandler();
+        saveHandler.setUserPath(file.toString());
+        users = new Users();
+        users.setAllUsers(saveHandler.readUserFile());
+        long t3 = System.nanoTime();
+
+        System.out.printf("generated in %.0f ms, saved %d bytes in %.0f ms, started up in %.0f ms%n",
+                (t1 - t0) / 1e6, Files.size(file), (t2 - t1) / 1e6, (t3 - t2) / 1e6);
+
+        monthStarts[0] = new DateTime(SyntheticCalendars.YEAR, 0, 1, 0, 0);
+        for (int m = 0; m < 12; m++) {
+            if (m > 0) {
+                monthStarts[m] = monthStarts[m - 1].offsetMonths(1);
+            }
+            monthEnds[m] = monthStarts[m].clone();
+            monthEnds[m].setTimeInMillis(monthStarts[m].getTimeInMillis() + 34 * 24 * 60 * MINUTE);
+        }
+
+        long t4 = System.nanoTime();
+        for (int s = 0; s < sessions; s++) {
+            session("user" + random.nextInt(numUsers), "user" + random.nextInt(numUsers));
+        }
+        System.out.printf("replayed %d sessions in %.0f ms%n", sessions, (System.nanoTime() - t4) / 1e6);
+        latencies.print();
+        System.out.println();
+        Metrics.dump(System.out);
+    }
+
+    /**
+     * @param userName  The user whose session it is
+     * @param shareWith The user an event is shared with
+     */
+    private void session(String userName, String shareWith) throws InvalidInputException,
+            CalendarNotInTheSystemException {
+        long start = System.nanoTime();
+        User user = users.login(userName, userName);
+        latencies.record("login", start);
+        ArrayList<CalendarSystem> shown = new ArrayList<>(user.getListOfCalendarSystem());
+
+        for (int m = 0; m < 12; m++) {
+            start = System.nanoTime();
+            for (CalendarSystem cs : shown) {
+                cs.getEventSystem().getEventsByDay(monthStarts[m], monthEnds[m]);
+            }
+            latencies.record("month view", start);
+        }
+
+        DateTime week = monthStarts[random.nextInt(12)];
+        for (int w = 0; w < 4; w++) {
+            DateTime weekEnd = week.clone();
+            weekEnd.setTimeInMillis(week.getTimeInMillis() + 6 * 24 * 60 * MINUTE);
+            start = System.nanoTime();
+            for (CalendarSystem cs : shown) {
+                cs.getEventSystem().getEventsByDay(week, weekEnd);
+            }
+            latencies.record("week view", start);
+            week = week.offsetWeeks(1);
+        }
+
+        DateTime yearEnd = monthStarts[0].offsetMonths(12);
+        start = System.nanoTime();
+        for (CalendarSystem cs : shown) {
+            cs.getEventSystem().getEventsByTag(SyntheticCalendars.TAGS[random.nextInt(SyntheticCalendars.TAGS.length)],
+                    monthStarts[0], yearEnd);
+        }
+        latencies.record("tag search", start);
+
+        start = System.nanoTime();
+        CalendarSearch.search(shown, SEARCHES[random.nextInt(SEARCHES.length)], 100);
+        latencies.record("text search", start);
+
+        start = System.nanoTime();
+        for (CalendarSystem cs : shown) {
+            searcher.eventsFromStartDatetime(cs.getEventSystem().getListOfEvents(), monthStarts[6]);
+        }
+        latencies.record("date search", start);
+
+        // The clock runs for a while from a time in the year, with the alerts of every calendar checked each tick
+        long now = monthStarts[random.nextInt(12)].getTimeInMillis() + random.nextInt(28) * 24 * 60 * MINUTE;
+        for (int t = 0; t < TICKS; t++) {
+            DateTime tickStart = new DateTime();
+            tickStart.setTimeInMillis(now);
+            now += MINUTE;
+            DateTime tickEnd = new DateTime();
+            tickEnd.setTimeInMillis(now);
+            start = System.nanoTime();
+            ArrayList<Alert> alerts = new ArrayList<>();
+            for (CalendarSystem cs : shown) {
+                EventSystem es = cs.getEventSystem();
+                synchronized (es) {
+                    alerts.addAll(cs.getAlertSystem().getDueAlerts(es.getListOfEvents(), es.getListOfGenerators(),
+                            tickStart, tickEnd));
+                }
+            }
+            latencies.record("clock tick", start);
+        }
+
+        ArrayList<Event> events = shown.get(0).getEventSystem().getListOfEvents();
+        if (!events.isEmpty()) {
+            start = System.nanoTime();
+            // Every user's default calendar is named after them
+            users.addSingleEvent(shareWith, shareWith, events.get(random.nextInt(events.size())));
+            latencies.record("share", start);
+        }
+
+        start = System.nanoTime();
+        users.userChanged(user);
+        saveHandler.saveChangedUsers(users.takeChangedUsers());
+        latencies.record("journal", start);
+    }
+}
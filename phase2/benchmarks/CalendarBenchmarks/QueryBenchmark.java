@@ -0,0 +1,128 @@
+package CalendarBenchmarks;
+
+import CalendarCore.Searcher;
+import CalendarCore.calendar.CalendarSystem;
+import CalendarCore.dates.DateTime;
+import CalendarCore.events.Event;
+import CalendarCore.events.EventSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The queries the calendar views make of one large calendar: the days of a month view, the events on a single date,
+ * and finding events by tag or by words of their titles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    /**
+     * The number of days in the month view
+     */
+    private static final int MONTH_DAYS = 35;
+
+    @Param({"1000", "10000"})
+    public int singleEvents;
+
+    @Param({"2"})
+    public int seriesPerFrequency;
+
+    @Param({"20"})
+    public int statutoryEvents;
+
+    private EventSystem es;
+
+    private Searcher searcher = new Searcher();
+
+    /**
+     * The days of the month view of June
+     */
+    private DateTime[] monthDays;
+
+    private DateTime yearStart;
+
+    private DateTime yearEnd;
+
+    @Setup
+    public void setUp() {
+        CalendarSystem cs = new CalendarSystem("Benchmark");
+        new SyntheticCalendars(singleEvents, seriesPerFrequency, statutoryEvents, singleEvents / 5, singleEvents / 50,
+                42).fill(cs);
+        es = cs.getEventSystem();
+
+        monthDays = new DateTime[MONTH_DAYS];
+        monthDays[0] = new DateTime(SyntheticCalendars.YEAR, 5, 1, 0, 0);
+        for (int i = 1; i < MONTH_DAYS; i++) {
+            monthDays[i] = monthDays[i - 1].nextDate();
+        }
+        yearStart = new DateTime(SyntheticCalendars.YEAR, 0, 1, 0, 0);
+        yearEnd = new DateTime(SyntheticCalendars.YEAR + 1, 0, 1, 0, 0);
+    }
+
+    /**
+     * The events of each day of a month view in one pass, as the month view finds them
+     */
+    @Benchmark
+    public ArrayList<ArrayList<Event>> monthByDay() {
+        return es.getEventsByDay(monthDays[0], monthDays[MONTH_DAYS - 1]);
+    }
+
+    /**
+     * The events of each day of a month view, one day at a time
+     */
+    @Benchmark
+    public int monthOnEachDate() {
+        int count = 0;
+        for (DateTime day : monthDays) {
+            count += es.getEventsOnDate(day).size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public ArrayList<Event> eventsOnDate() {
+        return es.getEventsOnDate(monthDays[10]);
+    }
+
+    /**
+     * The events of a year with a common tag, through the tag index
+     */
+    @Benchmark
+    public ArrayList<Event> tagSearch() {
+        return es.getEventsByTag(SyntheticCalendars.TAGS[0], yearStart, yearEnd);
+    }
+
+    /**
+     * The events of a year with a common tag, by looking at every event of the year
+     */
+    @Benchmark
+    public ArrayList<Event> tagSearchByScan() {
+        return searcher.getEventByTag(es.getEventsBetween(yearStart, yearEnd), SyntheticCalendars.TAGS[0]);
+    }
+
+    @Benchmark
+    public ArrayList<Event> eventsInMonth() {
+        return searcher.eventsInMonth(es.getListOfEvents(), monthDays[0]);
+    }
+
+    @Benchmark
+    public Object textSearch() {
+        return es.searchText("meet");
+    }
+}
@@ -0,0 +1,97 @@
+package CalendarBenchmarks;
+
+import CalendarCore.SaveHandler;
+import CalendarCore.users.StoredUser;
+import CalendarCore.users.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving users to the save file and reading them back through SaveHandler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveBenchmark {
+
+    @Param({"20"})
+    public int users;
+
+    @Param({"500"})
+    public int singleEvents;
+
+    private ArrayList<StoredUser> storedUsers = new ArrayList<>();
+
+    private Path file;
+
+    private SaveHandler saveHandler = new SaveHandler();
+
+    @Setup
+    public void setUp() throws IOException {
+        for (User u : new SyntheticCalendars(singleEvents, 1, 5, singleEvents / 5, singleEvents / 50, 42)
+                .users(users, 2)) {
+            storedUsers.add(new StoredUser(u));
+        }
+        file = Files.createTempFile("users", ".dcal");
+        saveHandler.setUserPath(file.toString());
+        saveHandler.saveUserFile(storedUsers);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void save() {
+        saveHandler.saveUserFile(storedUsers);
+    }
+
+    /**
+     * Reads the list of users without reading any user, as at start up
+     */
+    @Benchmark
+    public ArrayList<StoredUser> loadList() {
+        return saveHandler.readUserFile();
+    }
+
+    /**
+     * Reads every user in full
+     */
+    @Benchmark
+    public int loadAll() throws IOException {
+        int calendars = 0;
+        for (StoredUser u : saveHandler.readUserFile()) {
+            calendars += u.getUser().getListOfCalendarSystem().size();
+        }
+        return calendars;
+    }
+
+    /**
+     * Saves every user and reads them all back
+     */
+    @Benchmark
+    public int roundTrip() throws IOException {
+        saveHandler.saveUserFile(storedUsers);
+        return loadAll();
+    }
+}
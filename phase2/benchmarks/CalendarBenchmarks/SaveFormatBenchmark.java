@@ -0,0 +1,173 @@
+package CalendarBenchmarks;
+
+import CalendarCore.SaveHandler;
+import CalendarCore.alerts.AlertGenerator;
+import CalendarCore.calendar.CalendarSystem;
+import CalendarCore.dates.DateTime;
+import CalendarCore.events.Event;
+import CalendarCore.events.EventSystem;
+import CalendarCore.events.SeriesGenerator;
+import CalendarCore.users.StoredUser;
+import CalendarCore.users.User;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Compares saving and loading users with Java serialization, as SaveHandler used to, against the binary format
+ * SaveHandler uses now. Prints the average time of each and the size of each file.
+ * <p>
+ * Usage: SaveFormatBenchmark [users] [events per calendar]
+ */
+public class SaveFormatBenchmark {
+
+    private static final int ROUNDS = 10;
+
+    private static final String[] TAGS = {"work", "home", "school", "gym", "family", "travel"};
+
+    public static void main(String[] args) throws IOException {
+        int numUsers = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int numEvents = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        ArrayList<User> users = generateUsers(numUsers, numEvents, new Random(42));
+        ArrayList<StoredUser> storedUsers = new ArrayList<>();
+        for (User u : users) {
+            storedUsers.add(new StoredUser(u));
+        }
+
+        Path serialized = Files.createTempFile("users", ".ser");
+        Path binary = Files.createTempFile("users", ".dcal");
+        SaveHandler serializedHandler = new SaveHandler();
+        serializedHandler.setUserPath(serialized.toString());
+        SaveHandler binaryHandler = new SaveHandler();
+        binaryHandler.setUserPath(binary.toString());
+
+        // Warm up both paths before timing them
+        for (int i = 0; i < ROUNDS; i++) {
+            saveSerialized(users, serialized);
+            readAll(serializedHandler);
+            binaryHandler.saveUserFile(storedUsers);
+            readAll(binaryHandler);
+        }
+
+        long serializedSave = 0, serializedLoad = 0, binarySave = 0, binaryLoad = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            saveSerialized(users, serialized);
+            long t1 = System.nanoTime();
+            readAll(serializedHandler);
+            long t2 = System.nanoTime();
+            binaryHandler.saveUserFile(storedUsers);
+            long t3 = System.nanoTime();
+            readAll(binaryHandler);
+            long t4 = System.nanoTime();
+
+            serializedSave += t1 - t0;
+            serializedLoad += t2 - t1;
+            binarySave += t3 - t2;
+            binaryLoad += t4 - t3;
+        }
+
+        System.out.println(numUsers + " users, " + numEvents + " events per calendar");
+        System.out.printf("%-20s %10s %10s %12s%n", "format", "save ms", "load ms", "bytes");
+        System.out.printf("%-20s %10.1f %10.1f %12d%n", "Java serialization", millis(serializedSave),
+                millis(serializedLoad), Files.size(serialized));
+        System.out.printf("%-20s %10.1f %10.1f %12d%n", "binary", millis(binarySave), millis(binaryLoad),
+                Files.size(binary));
+
+        Files.deleteIfExists(serialized);
+        Files.deleteIfExists(binary);
+    }
+
+    /**
+     * Writes users the way SaveHandler did before the binary format: their number followed by each user
+     */
+    private static void saveSerialized(ArrayList<User> users, Path path) throws IOException {
+        FileOutputStream writer = new FileOutputStream(path.toFile());
+        ObjectOutputStream objWriter = new ObjectOutputStream(writer);
+        objWriter.writeObject(users.size());
+        for (User u : users) {
+            objWriter.writeObject(u);
+        }
+        objWriter.flush();
+        writer.getFD().sync();
+        objWriter.close();
+    }
+
+    /**
+     * Reads every user, as users in the binary format are otherwise only read once they log in
+     */
+    private static void readAll(SaveHandler handler) throws IOException {
+        for (StoredUser u : handler.readUserFile()) {
+            u.getUser();
+        }
+    }
+
+    private static double millis(long totalNanos) {
+        return totalNanos / 1e6 / ROUNDS;
+    }
+
+    /**
+     * @return Users with two calendars each, holding single events with tags and alerts, a few series and memos
+     */
+    private static ArrayList<User> generateUsers(int numUsers, int numEvents, Random random) {
+        ArrayList<User> users = new ArrayList<>();
+        for (int u = 0; u < numUsers; u++) {
+            User user = new User("user" + u, "password" + u);
+            try {
+                user.createNewCalendarSystem(new CalendarSystem("Work"));
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            for (CalendarSystem cs : user.getListOfCalendarSystem()) {
+                fillCalendar(cs, numEvents, random);
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static void fillCalendar(CalendarSystem cs, int numEvents, Random random) {
+        EventSystem es = cs.getEventSystem();
+        for (int i = 0; i < numEvents; i++) {
+            DateTime start = new DateTime(2020 + random.nextInt(3), random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(23), random.nextInt(4) * 15);
+            DateTime end = plusMinutes(start, (1 + random.nextInt(4)) * 30);
+            Event e = es.getEventByID(es.createSingleEvent("Event " + random.nextInt(numEvents / 4 + 1), start, end));
+
+            ArrayList<String> tags = new ArrayList<>();
+            tags.add(TAGS[random.nextInt(TAGS.length)]);
+            e.addTags(tags);
+            if (i % 5 == 0) {
+                cs.getAlertSystem().addAlert(e, "Starting soon",
+                        plusMinutes(start, -15));
+            }
+            if (i % 25 == 0) {
+                cs.getAlertSystem().addSeriesAlert(e, "Coming up", AlertGenerator.FREQUENCY.DAILY,
+                        plusMinutes(start, -7 * 24 * 60));
+            }
+            if (i % 50 == 0) {
+                cs.getMemoSystem().createMemo("Memo " + i);
+                cs.getMemoSystem().addEventToMemo(
+                        cs.getMemoSystem().getListOfMemo().get(cs.getMemoSystem().getListOfMemo().size() - 1),
+                        e.getId());
+            }
+        }
+        for (int i = 0; i < numEvents / 100 + 1; i++) {
+            DateTime start = new DateTime(2021, random.nextInt(12), 1 + random.nextInt(28), 9, 0);
+            DateTime end = plusMinutes(start, 60);
+            es.createSeriesEvent("Series " + i, "Lecture", start, end,
+                    new SeriesGenerator.FREQUENCY[]{SeriesGenerator.FREQUENCY.values()[random.nextInt(7)]}, 30);
+        }
+    }
+
+    private static DateTime plusMinutes(DateTime date, int minutes) {
+        DateTime d = date.clone();
+        d.setTimeInMillis(date.getTimeInMillis() + minutes * 60 * 1000L);
+        return d;
+    }
+}
@@ -0,0 +1,195 @@
+package CalendarBenchmarks;
+
+import CalendarCore.alerts.AlertGenerator;
+import CalendarCore.calendar.CalendarSystem;
+import CalendarCore.dates.DateTime;
+import CalendarCore.events.Event;
+import CalendarCore.events.EventSystem;
+import CalendarCore.events.SeriesGenerator;
+import CalendarCore.memos.Memo;
+import CalendarCore.memos.MemoSystem;
+import CalendarCore.users.User;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Fills calendars with made up events for benchmarks. Everything is added through the same calls the application
+ * makes, so the indexes of each calendar are built as they would be for a real user. The same seed always gives the
+ * same calendars.
+ * <p>
+ * The events fall within the year YEAR.
+ */
+public class SyntheticCalendars {
+
+    /**
+     * The year the events are in
+     */
+    public static final int YEAR = 2024;
+
+    /**
+     * The tags events are given, the first more often than the rest
+     */
+    public static final String[] TAGS = {"work", "home", "school", "gym", "family", "travel", "doctor", "birthday"};
+
+    /**
+     * The words event titles are made of
+     */
+    private static final String[] WORDS = {"meeting", "lecture", "lunch", "review", "call", "dentist", "party",
+            "practice", "exam", "standup", "dinner", "project", "deadline", "trip", "class"};
+
+    private final int singleEvents;
+
+    private final int seriesPerFrequency;
+
+    private final int statutoryEvents;
+
+    private final int alerts;
+
+    private final int memos;
+
+    private final Random random;
+
+    /**
+     * @param singleEvents       The number of single events in each calendar
+     * @param seriesPerFrequency The number of series of each FREQUENCY in each calendar
+     * @param statutoryEvents    The number of statutory events in each calendar
+     * @param alerts             The number of single events in each calendar with an alert, one in ten of them
+     *                           recurring
+     * @param memos              The number of memos in each calendar, each about a few events
+     * @param seed               The seed of the random choices
+     */
+    public SyntheticCalendars(int singleEvents, int seriesPerFrequency, int statutoryEvents, int alerts, int memos,
+                              long seed) {
+        this.singleEvents = singleEvents;
+        this.seriesPerFrequency = seriesPerFrequency;
+        this.statutoryEvents = statutoryEvents;
+        this.alerts = alerts;
+        this.memos = memos;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param numUsers     The number of users
+     * @param numCalendars The number of calendars of each user, including the default one
+     * @return Users whose calendars are all filled
+     */
+    public ArrayList<User> users(int numUsers, int numCalendars) {
+        ArrayList<User> users = new ArrayList<>();
+        for (int u = 0; u < numUsers; u++) {
+            users.add(user("user" + u, numCalendars));
+        }
+        return users;
+    }
+
+    /**
+     * @param userName     The name of the user, which is also its password
+     * @param numCalendars The number of calendars of the user, including the default one
+     * @return A user whose calendars are all filled
+     */
+    public User user(String userName, int numCalendars) {
+        User user = new User(userName, userName);
+        for (int c = 1; c < numCalendars; c++) {
+            try {
+                user.createNewCalendarSystem(new CalendarSystem("Calendar " + c));
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        for (CalendarSystem cs : user.getListOfCalendarSystem()) {
+            fill(cs);
+        }
+        return user;
+    }
+
+    /**
+     * Adds the events, alerts and memos to a calendar
+     *
+     * @param cs The calendar
+     */
+    public void fill(CalendarSystem cs) {
+        EventSystem es = cs.getEventSystem();
+        ArrayList<Event> events = new ArrayList<>();
+        for (int i = 0; i < singleEvents; i++) {
+            DateTime start = new DateTime(YEAR, random.nextInt(12), 1 + random.nextInt(28), 7 + random.nextInt(14),
+                    random.nextInt(4) * 15);
+            DateTime end = plusMinutes(start, (1 + random.nextInt(4)) * 30);
+            Event e = es.getEventByID(es.createSingleEvent(title(), start, end));
+            es.setTags(e, tags());
+            events.add(e);
+        }
+
+        for (SeriesGenerator.FREQUENCY f : SeriesGenerator.FREQUENCY.values()) {
+            for (int i = 0; i < seriesPerFrequency; i++) {
+                DateTime start = new DateTime(YEAR, random.nextInt(3), 1 + random.nextInt(28), 8 + random.nextInt(10),
+                        0);
+                DateTime end = plusMinutes(start, 60);
+                SeriesGenerator.FREQUENCY[] frequency = {f};
+                // Half of the series stop after a number of occurrences and half on a date
+                if (i % 2 == 0) {
+                    es.createSeriesEvent("Series " + f + " " + i, title(), start, end, frequency,
+                            10 + random.nextInt(90));
+                } else {
+                    es.createSeriesEvent("Series " + f + " " + i, title(), start, end, frequency,
+                            new DateTime(YEAR, 11, 31, 23, 0));
+                }
+            }
+        }
+
+        for (int i = 0; i < statutoryEvents; i++) {
+            // Days are 0-6, weeks 1-5, and months 1-12 with 13 for every month
+            es.createStatutoryEvent("Holiday " + i, random.nextInt(7), 1 + random.nextInt(5), 1 + random.nextInt(13));
+        }
+
+        for (int i = 0; i < alerts && !events.isEmpty(); i++) {
+            Event e = events.get(random.nextInt(events.size()));
+            if (i % 10 == 0) {
+                cs.getAlertSystem().addSeriesAlert(e, "Coming up", AlertGenerator.FREQUENCY.DAILY,
+                        plusMinutes(e.getStart(), -7 * 24 * 60));
+            } else {
+                cs.getAlertSystem().addAlert(e, "Starting soon", plusMinutes(e.getStart(), -15));
+            }
+        }
+
+        MemoSystem ms = cs.getMemoSystem();
+        for (int i = 0; i < memos; i++) {
+            ms.createMemo("Memo " + i + " about the " + WORDS[random.nextInt(WORDS.length)]);
+            Memo memo = ms.getListOfMemo().get(ms.getListOfMemo().size() - 1);
+            for (int j = 0; j < 3 && !events.isEmpty(); j++) {
+                ms.addEventToMemo(memo, events.get(random.nextInt(events.size())).getId());
+            }
+        }
+    }
+
+    /**
+     * @return A title of two words
+     */
+    private String title() {
+        return capitalize(WORDS[random.nextInt(WORDS.length)]) + " " + WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /**
+     * @return One or two tags, the first tag of TAGS half the time
+     */
+    private ArrayList<String> tags() {
+        ArrayList<String> tags = new ArrayList<>();
+        tags.add(random.nextBoolean() ? TAGS[0] : TAGS[random.nextInt(TAGS.length)]);
+        if (random.nextInt(4) == 0) {
+            String second = TAGS[random.nextInt(TAGS.length)];
+            if (!tags.contains(second)) {
+                tags.add(second);
+            }
+        }
+        return tags;
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    static DateTime plusMinutes(DateTime date, int minutes) {
+        DateTime d = date.clone();
+        d.setTimeInMillis(date.getTimeInMillis() + minutes * 60 * 1000L);
+        return d;
+    }
+}
@@ -1,17 +1,68 @@
 package CalendarCore;
 
+import CalendarCore.metrics.Counter;
+import CalendarCore.metrics.Metrics;
+import CalendarCore.metrics.Timer;
+import CalendarCore.users.StoredUser;
 import CalendarCore.users.User;
 import javafx.scene.paint.Color;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SaveHandler {
 
+    /**
+     * The journal is folded into a full save once it is larger than this and larger than the last full save
+     */
+    private static final long COMPACT_SIZE = 1024 * 1024;
+
+    /**
+     * How long reading the users takes, how long encoding their changes takes on the thread which owns them, how long
+     * the background writes take, full saves counting the time to build them, and how many bytes they write
+     */
+    private static final Timer READ_TIMER = Metrics.timer("SaveHandler.readUserFile");
+    private static final Timer ENCODE_TIMER = Metrics.timer("SaveHandler.encode");
+    private static final Timer JOURNAL_WRITE_TIMER = Metrics.timer("SaveHandler.writeJournal");
+    private static final Timer FILE_WRITE_TIMER = Metrics.timer("SaveHandler.writeUserFile");
+    private static final Counter BYTES_WRITTEN = Metrics.counter("SaveHandler.bytesWritten");
+
     private String userPath;
     private String colorPath;
 
+    /**
+     * The users changed since the last full save of userPath, kept next to it
+     */
+    private UserJournal journal;
+
+    /**
+     * The sizes of the journal and the last full save. Only the writer uses them once the user path is set.
+     */
+    private long journalSize, snapshotSize;
+
+    /**
+     * Writes users to disk on a background thread, one write at a time in the order they were asked for. Changes are
+     * encoded beforehand by the thread which owns the users, so they cannot change while they are written. A full
+     * save is built on the writer, either from the last full save and the journal or from the users while their
+     * owner waits for it.
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "User saver");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Sets the path color information will be read from and written to.
@@ -27,61 +78,172 @@ public class SaveHandler {
      */
     public void setUserPath(String userPath) {
         this.userPath = userPath;
+        this.journal = new UserJournal(Paths.get(userPath + ".journal"));
+        journalSize = journal.size();
+        snapshotSize = new File(userPath).length();
     }
 
     /**
-     * Attempts to read a list of users from the file specified by userPath.
+     * Attempts to read a list of users from the file specified by userPath, along with any changes to them which
+     * were journaled after it was last saved. The file is read into memory in one go but each user is only decoded
+     * once it is needed, so this costs little more than reading the file.
      * @return the list of users found in the file or an empty list if none were found
      */
-    public ArrayList<User> readUserFile() {
+    public ArrayList<StoredUser> readUserFile() {
+        long startNanos = READ_TIMER.start();
         try {
-            FileInputStream calFile = new FileInputStream(userPath);
-            ObjectInputStream objReader = new ObjectInputStream(calFile);
-
-            // Get the number of saved cal_core.users.Users.
-            Integer numSavedUsers = (Integer) objReader.readObject();
+            awaitWrites();
+            ArrayList<StoredUser> loadedUsers = new ArrayList<>();
+            try {
+                loadedUsers = readSnapshot();
+            } catch (NoSuchFileException e) {
+                System.out.println("Error reading saved calendar file.");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            try {
+                journal.replay(loadedUsers);
+            } catch (IOException e) {
+                System.out.println("Error reading saved changes to users.");
+            }
+            return loadedUsers;
+        } finally {
+            READ_TIMER.stop(startNanos);
+        }
+    }
 
-            ArrayList<User> loadedUsers = new ArrayList<>();
-            for (int i = 0; i < numSavedUsers; i++) {
-                User u = (User) objReader.readObject();
-                loadedUsers.add(u);
+    /**
+     * Reads the users in the file specified by userPath. A file saved with Java serialization by an older version is
+     * read as well and is converted to the binary format the next time the users are saved.
+     * @return the list of users in the file
+     * @throws IOException if the file could not be read
+     */
+    private ArrayList<StoredUser> readSnapshot() throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(userPath), StandardOpenOption.READ)) {
+            // Read rather than memory mapped, since the users keep slices of it and Windows cannot replace a file
+            // which is still mapped, which every full save does
+            ByteBuffer bytes = ByteBuffer.allocate((int) channel.size());
+            while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                // Keep reading until the whole file is in the buffer
             }
-            objReader.close();
+            bytes.flip();
+            return UserFormat.decode(bytes);
+        }
+    }
 
-            return loadedUsers;
-        } catch (FileNotFoundException e) {
-            System.out.println("Error reading saved calendar file.");
-        } catch (EOFException e) {
-            return new ArrayList<>();
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
+    /**
+     * Journals what changed in the users since they were last journaled. The changes are encoded on the calling
+     * thread and written in the background, so this only costs as much as encoding the changed events and memos and
+     * can be done after every change. Once the journal has grown large enough it is folded into userPath in the
+     * background, without the users.
+     * @param changedUsers the users which have changed since they were last saved.
+     */
+    public void saveChangedUsers(ArrayList<User> changedUsers) {
+        if (changedUsers.isEmpty()) {
+            return;
         }
 
-        return new ArrayList<>();
+        byte[] records;
+        long startNanos = ENCODE_TIMER.start();
+        try {
+            records = UserJournal.toRecords(changedUsers);
+        } catch (IOException e) {
+            System.out.println("Error writing changed users to file.");
+            return;
+        } finally {
+            ENCODE_TIMER.stop(startNanos);
+        }
+        if (records.length == 0) {
+            return;
+        }
+        writer.execute(() -> {
+            long writeStart = JOURNAL_WRITE_TIMER.start();
+            try {
+                journal.append(records);
+                journalSize += records.length;
+                BYTES_WRITTEN.add(records.length);
+            } catch (IOException e) {
+                System.out.println("Error writing changed users to file.");
+            } finally {
+                JOURNAL_WRITE_TIMER.stop(writeStart);
+            }
+            if (journalSize > COMPACT_SIZE && journalSize > snapshotSize) {
+                compact();
+            }
+        });
     }
 
     /**
-     * Attempts to write a list of users to the file specified by userPath.
+     * Attempts to write a list of users to the file specified by userPath in the binary format and waits until it
+     * has been written, along with any earlier changes still being written. The users are encoded on the writer
+     * while this waits, so the calling thread cannot change them meanwhile. The file is replaced in one step once it
+     * has been completely written, after which the journal is emptied. Users which were never read are copied
+     * across as they are.
      * @param allUsers the list of all users to be written to the file.
      */
-    public void saveUserFile(ArrayList<User> allUsers) {
-        try {
-            FileOutputStream writer = new FileOutputStream(userPath);
-            ObjectOutputStream objWriter = new ObjectOutputStream(writer);
+    public void saveUserFile(ArrayList<StoredUser> allUsers) {
+        writer.execute(() -> {
+            long writeStart = FILE_WRITE_TIMER.start();
+            try {
+                writeUserFile(UserFormat.encode(allUsers));
+            } finally {
+                FILE_WRITE_TIMER.stop(writeStart);
+            }
+        });
+        awaitWrites();
+    }
 
-            // Before writing any users, write how many there will be.
-            Integer numUsers = allUsers.size();
-            objWriter.writeObject(numUsers);
+    /**
+     * Folds the journal into userPath on the writer. The full save is built from the last one and the journal rather
+     * than from the users in use, so the thread which owns them is not held up and they are not read while they
+     * change. Only the users the journal changed are decoded.
+     */
+    private void compact() {
+        long writeStart = FILE_WRITE_TIMER.start();
+        try {
+            ArrayList<StoredUser> users = Files.exists(Paths.get(userPath)) ? readSnapshot() : new ArrayList<>();
+            journal.replay(users);
+            writeUserFile(UserFormat.encode(users));
+        } catch (IOException e) {
+            System.out.println("Error writing users to file.");
+        } finally {
+            FILE_WRITE_TIMER.stop(writeStart);
+        }
+    }
 
-            for (User u : allUsers) {
-                objWriter.writeObject(u);
-            }
+    /**
+     * Writes a full save to userPath on the writer and empties the journal
+     */
+    private void writeUserFile(byte[] bytes) {
+        try {
+            Path userFile = Paths.get(userPath);
+            Path tempFile = Paths.get(userPath + ".tmp");
+            FileOutputStream out = new FileOutputStream(tempFile.toFile());
+            out.write(bytes);
+            out.getFD().sync();
+            out.close();
 
-            writer.close();
+            Files.move(tempFile, userFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal.clear();
+            journalSize = 0;
+            snapshotSize = bytes.length;
+            BYTES_WRITTEN.add(bytes.length);
         } catch (IOException e) {
             System.out.println("Error writing users to file.");
         }
+    }
 
+    /**
+     * Waits until every write asked for so far has been done
+     */
+    private void awaitWrites() {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
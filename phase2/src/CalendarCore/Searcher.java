@@ -3,6 +3,8 @@ package CalendarCore;
 import CalendarCore.dates.DateTime;
 import CalendarCore.events.Event;
 import CalendarCore.memos.Memo;
+import CalendarCore.metrics.Metrics;
+import CalendarCore.metrics.Timer;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -10,32 +12,57 @@ import java.util.Calendar;
 
 public class Searcher implements Serializable {
 
+    /**
+     * Fixed so that searchers saved before the timers were added can still be read
+     */
+    private static final long serialVersionUID = 2212601698400584451L;
+
+    /**
+     * How long each search takes
+     */
+    private static final Timer FROM_START_TIMER = Metrics.timer("Searcher.eventsFromStartDatetime");
+    private static final Timer FROM_END_TIMER = Metrics.timer("Searcher.eventsFromEndDatetime");
+    private static final Timer IN_MONTH_TIMER = Metrics.timer("Searcher.eventsInMonth");
+    private static final Timer IN_WEEK_TIMER = Metrics.timer("Searcher.eventsInWeek");
+    private static final Timer IN_HOUR_TIMER = Metrics.timer("Searcher.eventsInHour");
+    private static final Timer BY_TAG_TIMER = Metrics.timer("Searcher.getEventByTag");
+
     /**
      * @return ArrayList of Events with the start date startDate
      */
     public ArrayList<Event> eventsFromStartDatetime(ArrayList<Event> events, DateTime startDate) {
-        ArrayList<Event> validEvents = new ArrayList<>();
-        for (Event evt : events) {
-            if (evt.getStart().equalDates(startDate)) {
-                validEvents.add(evt);
+        long startNanos = FROM_START_TIMER.start();
+        try {
+            ArrayList<Event> validEvents = new ArrayList<>();
+            for (Event evt : events) {
+                if (evt.getStart().equalDates(startDate)) {
+                    validEvents.add(evt);
+                }
             }
-        }
 
-        return validEvents;
+            return validEvents;
+        } finally {
+            FROM_START_TIMER.stop(startNanos);
+        }
     }
 
     /**
      * @return ArrayList of Events with the end date endDate
      */
     public ArrayList<Event> eventsFromEndDatetime(ArrayList<Event> events, DateTime endDate) {
-        ArrayList<Event> validEvents = new ArrayList<>();
-        for (Event evt : events) {
-            if (evt.getEnd().equalDates(endDate)) {
-                validEvents.add(evt);
+        long startNanos = FROM_END_TIMER.start();
+        try {
+            ArrayList<Event> validEvents = new ArrayList<>();
+            for (Event evt : events) {
+                if (evt.getEnd().equalDates(endDate)) {
+                    validEvents.add(evt);
+                }
             }
-        }
 
-        return validEvents;
+            return validEvents;
+        } finally {
+            FROM_END_TIMER.stop(startNanos);
+        }
     }
 
     /**
@@ -46,15 +73,20 @@ public class Searcher implements Serializable {
      * @return ArrayList of Events in a particular month.
      */
     public ArrayList<Event> eventsInMonth(ArrayList<Event> events, DateTime date) {
-        int month = date.get(Calendar.MONTH);
-        int year = date.get(Calendar.YEAR);
-        ArrayList<Event> monthEvents = new ArrayList<>();
-        for (Event event : events) {
-            if (event.getStart().dateInMonth(month, year)) {
-                monthEvents.add(event);
+        long startNanos = IN_MONTH_TIMER.start();
+        try {
+            int month = date.get(Calendar.MONTH);
+            int year = date.get(Calendar.YEAR);
+            ArrayList<Event> monthEvents = new ArrayList<>();
+            for (Event event : events) {
+                if (event.getStart().dateInMonth(month, year)) {
+                    monthEvents.add(event);
+                }
             }
+            return monthEvents;
+        } finally {
+            IN_MONTH_TIMER.stop(startNanos);
         }
-        return monthEvents;
     }
 
     /**
@@ -64,17 +96,22 @@ public class Searcher implements Serializable {
      * @return ArrayList of events in the week of <start>.
      */
     public ArrayList<Event> eventsInWeek(ArrayList<Event> events, DateTime start) {
-        long millisInMinute = 1000 * 60;
-        long startInMillis = start.getTimeInMillis();
-        long endInMillis = startInMillis + 7 * 24 * 60 * millisInMinute;
-        ArrayList<Event> weekEvents = new ArrayList<>();
-        for (Event event : events) {
-            if (event.getStart().getTimeInMillis() >= startInMillis
-                    && event.getStart().getTimeInMillis() <= endInMillis) {
-                weekEvents.add(event);
+        long startNanos = IN_WEEK_TIMER.start();
+        try {
+            long millisInMinute = 1000 * 60;
+            long startInMillis = start.getTimeInMillis();
+            long endInMillis = startInMillis + 7 * 24 * 60 * millisInMinute;
+            ArrayList<Event> weekEvents = new ArrayList<>();
+            for (Event event : events) {
+                if (event.getStart().getTimeInMillis() >= startInMillis
+                        && event.getStart().getTimeInMillis() <= endInMillis) {
+                    weekEvents.add(event);
+                }
             }
+            return weekEvents;
+        } finally {
+            IN_WEEK_TIMER.stop(startNanos);
         }
-        return weekEvents;
 //        DateTime endDate = null;
 //        for(int i = 0; i < 6; i = i + 1){
 //            endDate = start.nextDate();
@@ -96,15 +133,20 @@ public class Searcher implements Serializable {
      * @return ArrayList of all the events with one hour of <start>.
      */
     public ArrayList<Event> eventsInHour(ArrayList<Event> events, DateTime start) {
-        ArrayList<Event> hourEvents = new ArrayList<>();
-        long millisInMinute = 1000 * 60;
-        long startInMillis = start.getTimeInMillis();
-        for (Event event : events) {
-            if ((event.getStart().getTimeInMillis() - startInMillis) <= (60 * millisInMinute)) {
-                hourEvents.add(event);
+        long startNanos = IN_HOUR_TIMER.start();
+        try {
+            ArrayList<Event> hourEvents = new ArrayList<>();
+            long millisInMinute = 1000 * 60;
+            long startInMillis = start.getTimeInMillis();
+            for (Event event : events) {
+                if ((event.getStart().getTimeInMillis() - startInMillis) <= (60 * millisInMinute)) {
+                    hourEvents.add(event);
+                }
             }
+            return hourEvents;
+        } finally {
+            IN_HOUR_TIMER.stop(startNanos);
         }
-        return hourEvents;
     }
 
     /**
@@ -123,13 +165,18 @@ public class Searcher implements Serializable {
      * @return an arraylist of events that match a tag
      */
     public ArrayList<Event> getEventByTag(ArrayList<Event> events, String tag) {
-        ArrayList<Event> matchedEvents = new ArrayList<>();
-        for (Event e : events) {
-            if (e.matchesTag(tag)) {
-                matchedEvents.add(e);
+        long startNanos = BY_TAG_TIMER.start();
+        try {
+            ArrayList<Event> matchedEvents = new ArrayList<>();
+            for (Event e : events) {
+                if (e.matchesTag(tag)) {
+                    matchedEvents.add(e);
+                }
             }
+            return matchedEvents;
+        } finally {
+            BY_TAG_TIMER.stop(startNanos);
         }
-        return matchedEvents;
     }
 
 
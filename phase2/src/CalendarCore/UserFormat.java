@@ -0,0 +1,145 @@
+package CalendarCore;
+
+import CalendarCore.users.StoredUser;
+import CalendarCore.users.User;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The binary format users are saved in.
+ * <p>
+ * A file starts with the bytes "DCAL" and a version number. Since version 2 this is followed by a directory of the
+ * name and length of each user's segment, and then the segments themselves, each user written by User.write on its
+ * own. A user can therefore be found without reading the others and read on its own when it is needed. Version 1
+ * files hold the number of users followed by each user. Files saved with Java serialization before this format
+ * existed are recognised by their header and read the old way, so they are converted the next time the users are
+ * saved.
+ */
+class UserFormat {
+
+    private static final byte[] MAGIC = {'D', 'C', 'A', 'L'};
+
+    /**
+     * The version written. Increase it whenever what a write method writes changes.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The first version with a directory of segments
+     */
+    private static final int SEGMENTED_VERSION = 2;
+
+    /**
+     * The first bytes of a Java serialization stream
+     */
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xACED;
+
+    /**
+     * @param users The users to encode. Users which have not been read are copied as they are.
+     * @return The users in the binary format
+     */
+    static byte[] encode(List<StoredUser> users) {
+        ArrayList<byte[]> segments = new ArrayList<>();
+        BinaryWriter out = new BinaryWriter();
+        out.writeBytes(MAGIC);
+        out.writeVarInt(VERSION);
+        out.writeVarInt(users.size());
+        for (StoredUser u : users) {
+            byte[] segment = u.toSegment();
+            segments.add(segment);
+            out.writeString(u.getUserName());
+            out.writeVarInt(segment.length);
+        }
+        for (byte[] segment : segments) {
+            out.writeBytes(segment);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param bytes Users in the binary format or saved with Java serialization, from the buffer's position up to its
+     *              limit
+     * @return The users. Users in a version 2 file are left unread, as slices of bytes.
+     * @throws IOException if the bytes do not hold users in any format
+     */
+    static ArrayList<StoredUser> decode(ByteBuffer bytes) throws IOException {
+        bytes = bytes.slice();
+        if (!bytes.hasRemaining()) {
+            return new ArrayList<>();
+        }
+        if (bytes.remaining() >= 2 && ((bytes.get(0) & 0xFF) << 8 | bytes.get(1) & 0xFF) == JAVA_SERIALIZATION_MAGIC) {
+            return decodeSerialized(bytes);
+        }
+        if (bytes.remaining() < MAGIC.length) {
+            throw new StreamCorruptedException("Not a saved calendar file");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes.get(i) != MAGIC[i]) {
+                throw new StreamCorruptedException("Not a saved calendar file");
+            }
+        }
+
+        BinaryReader in = new BinaryReader(bytes.position(MAGIC.length));
+        int version = in.readVarInt();
+        if (version > VERSION) {
+            throw new StreamCorruptedException("Saved by a newer version: " + version);
+        }
+        int count = in.readVarInt();
+        ArrayList<StoredUser> users = new ArrayList<>();
+        if (version < SEGMENTED_VERSION) {
+            for (int i = 0; i < count; i++) {
+                users.add(new StoredUser(User.read(in)));
+            }
+            return users;
+        }
+
+        String[] names = new String[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = in.readString();
+            lengths[i] = in.readVarInt();
+        }
+        int offset = in.position();
+        for (int i = 0; i < count; i++) {
+            if (lengths[i] > bytes.limit() - offset) {
+                throw new EOFException();
+            }
+            ByteBuffer segment = bytes.duplicate();
+            segment.position(offset).limit(offset + lengths[i]);
+            users.add(new StoredUser(names[i], segment.slice()));
+            offset += lengths[i];
+        }
+        return users;
+    }
+
+    /**
+     * Reads users saved with Java serialization, either as a count followed by that many users or as users alone
+     */
+    private static ArrayList<StoredUser> decodeSerialized(ByteBuffer bytes) throws IOException {
+        byte[] copy = new byte[bytes.remaining()];
+        bytes.duplicate().get(copy);
+
+        ArrayList<StoredUser> users = new ArrayList<>();
+        try (ObjectInputStream objReader = new ObjectInputStream(new ByteArrayInputStream(copy))) {
+            while (true) {
+                Object o = objReader.readObject();
+                if (o instanceof User) {
+                    users.add(new StoredUser((User) o));
+                }
+            }
+        } catch (EOFException e) {
+            return users;
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+}
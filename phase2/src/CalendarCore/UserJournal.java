@@ -0,0 +1,205 @@
+package CalendarCore;
+
+import CalendarCore.users.StoredUser;
+import CalendarCore.users.User;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.zip.CRC32;
+
+/**
+ * An append only log of the changes to users since the last full save. Replaying the log over the last full save in
+ * order recovers every change which was logged before a crash.
+ * <p>
+ * A record is the length of its payload, a CRC32 of it and then the payload. The payload is CHANGES, the user's name
+ * and what User.writeChanges wrote: a user which was not saved before whole, otherwise the calendars it created and
+ * the current state of each event, series and memo list it changed, keyed by id, so a record costs as much as the
+ * change rather than the user. Journals written before changes were logged hold whole users in the save format
+ * instead, which are still read. A record which was only partly written when the program stopped fails its length
+ * or checksum and is dropped with everything after it.
+ */
+class UserJournal {
+
+    /**
+     * The bytes before the encoded user in each record: its length and its checksum
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * The first byte of a payload holding changes, which no user in the save format starts with
+     */
+    private static final int CHANGES = 0;
+
+    /**
+     * The path of the journal file
+     */
+    private Path path;
+
+    /**
+     * @param path The path of the journal file
+     */
+    UserJournal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @return The size of the journal in bytes
+     */
+    long size() {
+        try {
+            return Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Encodes what changed in some users since they were last journaled as journal records. The records are a
+     * snapshot, so they can be appended later on another thread while the users keep changing.
+     *
+     * @param users The users which may have changed
+     * @return The records, or an empty array if nothing changed
+     * @throws IOException if the records could not be built
+     */
+    static byte[] toRecords(ArrayList<User> users) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        for (User u : users) {
+            BinaryWriter out = new BinaryWriter();
+            out.writeByte(CHANGES);
+            out.writeString(u.getUserName());
+            if (!User.writeChanges(out, u)) {
+                continue;
+            }
+            byte[] payload = out.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(payload.length);
+            header.putInt((int) crc.getValue());
+            records.write(header.array());
+            records.write(payload);
+        }
+        return records.toByteArray();
+    }
+
+    /**
+     * Appends records built by toRecords to the journal with a single write and forces it to disk
+     *
+     * @param records The records
+     * @throws IOException if the journal could not be written
+     */
+    void append(byte[] records) throws IOException {
+        if (records.length == 0) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(records);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Applies every complete record of the journal to a list of users. Changes are applied to the user of the same
+     * name, which is read from the save to apply them. A whole user replaces the user of the same name or is added if
+     * there is none. An incomplete record at the end is cut off the journal.
+     *
+     * @param users The users of the last full save
+     * @throws IOException if the journal could not be read
+     */
+    void replay(ArrayList<StoredUser> users) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the whole journal is in the buffer
+            }
+            buffer.flip();
+
+            HashMap<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < users.size(); i++) {
+                positions.put(users.get(i).getUserName(), i);
+            }
+            HashSet<User> changed = new HashSet<>();
+            int valid = 0;
+            try {
+                while (buffer.remaining() >= HEADER_SIZE) {
+                    int length = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    if (length < 0 || length > buffer.remaining()) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    buffer.get(payload);
+
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+
+                    if (length > 0 && payload[0] == CHANGES) {
+                        BinaryReader in = new BinaryReader(payload, 1);
+                        Integer position = positions.get(in.readString());
+                        User u = User.readChanges(in, position == null ? null : users.get(position).getUser());
+                        replaceUser(users, positions, new StoredUser(u));
+                        changed.add(u);
+                    } else {
+                        for (StoredUser u : UserFormat.decode(ByteBuffer.wrap(payload))) {
+                            replaceUser(users, positions, u);
+                        }
+                    }
+                    valid = buffer.position();
+                }
+            } finally {
+                for (User u : changed) {
+                    u.applyChanges();
+                }
+            }
+
+            if (valid < channel.size()) {
+                channel.truncate(valid);
+            }
+        }
+    }
+
+    /**
+     * Empties the journal once its users are in a full save
+     *
+     * @throws IOException if the journal could not be emptied
+     */
+    void clear() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Replaces the user of the same name, found by its position in users, or adds the user if there is none
+     */
+    private static void replaceUser(ArrayList<StoredUser> users, HashMap<String, Integer> positions, StoredUser u) {
+        Integer position = positions.get(u.getUserName());
+        if (position == null) {
+            positions.put(u.getUserName(), users.size());
+            users.add(u);
+        } else {
+            users.set(position, u);
+        }
+    }
+}
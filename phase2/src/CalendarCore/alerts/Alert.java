@@ -2,10 +2,19 @@ package CalendarCore.alerts;
 
 
 import CalendarCore.dates.DateTime;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 public class Alert implements Comparable<Alert>, Serializable {
+
+    /**
+     * Fixed so that alerts saved before the binary save format was added can still be read
+     */
+    private static final long serialVersionUID = -7098100937455060880L;
+
     private String message;
     private DateTime startTime;
 
@@ -41,4 +50,25 @@ public class Alert implements Comparable<Alert>, Serializable {
     public int compareTo(Alert a) {
         return startTime.compareTo(a.getTime());
     }
+
+    /**
+     * Writes an alert in the binary save format
+     *
+     * @param out The writer
+     * @param a   The alert
+     */
+    public static void write(BinaryWriter out, Alert a) {
+        out.writeString(a.message);
+        DateTime.write(out, a.startTime);
+    }
+
+    /**
+     * @param in The reader
+     * @return An alert written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static Alert read(BinaryReader in) throws IOException {
+        String message = in.readString();
+        return new Alert(message, DateTime.read(in));
+    }
 }
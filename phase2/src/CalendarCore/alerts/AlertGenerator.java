@@ -1,11 +1,24 @@
 package CalendarCore.alerts;
 
 import CalendarCore.dates.DateTime;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
 import java.util.ArrayList;
 
+/**
+ * A recurring alert. Only the rule is stored; its alerts are generated for whatever window of time is asked for.
+ */
 public class AlertGenerator implements Serializable {
+
+    /**
+     * Fixed so that calendars saved before the alert window was added can still be read
+     */
+    private static final long serialVersionUID = 5998898245709384163L;
+
     public enum FREQUENCY {
         QUADHOURLY,
         BIHOURLY,
@@ -17,41 +30,137 @@ public class AlertGenerator implements Serializable {
     private String message;
     private FREQUENCY frequency;
 
-    public AlertGenerator(String message, FREQUENCY frequency) {
+    /**
+     * The time of the first alert
+     */
+    private DateTime start;
+
+    /**
+     * No alert is after this time
+     */
+    private DateTime end;
+
+    /**
+     * @param message   The message of the alerts
+     * @param frequency How often the alert recurs
+     * @param start     The time of the first alert
+     * @param end       The time after which there are no alerts
+     */
+    public AlertGenerator(String message, FREQUENCY frequency, DateTime start, DateTime end) {
         this.message = message;
         this.frequency = frequency;
+        this.start = start.clone();
+        this.end = end.clone();
     }
 
-    public ArrayList<Alert> generate(DateTime start, DateTime end) {
-        DateTime curr = start.clone();
-        ArrayList<Alert> alerts = new ArrayList<>();
+    public String getMessage() {
+        return message;
+    }
 
-        long additional = 0;
+    public FREQUENCY getFrequency() {
+        return frequency;
+    }
+
+    public DateTime getStart() {
+        return start;
+    }
+
+    public DateTime getEnd() {
+        return end;
+    }
+
+    /**
+     * @return The time between alerts in milliseconds
+     */
+    private long getStep() {
         long millisInMinute = 1000 * 60;
         switch (frequency) {
             case QUADHOURLY:
-                additional = 15 * millisInMinute;
-                break;
+                return 15 * millisInMinute;
             case BIHOURLY:
-                additional = 30 * millisInMinute;
-                break;
+                return 30 * millisInMinute;
             case HOURLY:
-                additional = 60 * millisInMinute;
-                break;
+                return 60 * millisInMinute;
             case DAILY:
-                additional = 24 * 60 * millisInMinute;
-                break;
-            case WEEKLY:
-                additional = 7 * 24 * 60 * millisInMinute;
-                break;
+                return 24 * 60 * millisInMinute;
+            default:
+                return 7 * 24 * 60 * millisInMinute;
         }
+    }
 
-        while (curr.compareTo(end) <= 0) {
-            Alert temp = new Alert(message, curr.clone());
-            alerts.add(temp);
-            curr.setTimeInMillis(curr.getTimeInMillis() + additional);
+    /**
+     * @param time A time in milliseconds
+     * @return The time of the first alert at or after time, or Long.MAX_VALUE if there is none
+     */
+    public long firstAtOrAfter(long time) {
+        if (time > end.getTimeInMillis()) {
+            return Long.MAX_VALUE;
         }
+        long first = start.getTimeInMillis();
+        long step = getStep();
+        long next = first;
+        if (time > first) {
+            // Rounds up to the next whole step after the first alert
+            next = first + ((time - first + step - 1) / step) * step;
+        }
+        return next <= end.getTimeInMillis() ? next : Long.MAX_VALUE;
+    }
+
+    /**
+     * @param time The time of one of the alerts in milliseconds
+     * @return The alert at that time
+     */
+    public Alert toAlert(long time) {
+        DateTime dateTime = new DateTime();
+        dateTime.setTimeInMillis(time);
+        return new Alert(message, dateTime);
+    }
 
+    /**
+     * @param from The start of the window
+     * @param to   The end of the window
+     * @return The alerts from from to to inclusive
+     */
+    public ArrayList<Alert> generate(DateTime from, DateTime to) {
+        ArrayList<Alert> alerts = new ArrayList<>();
+        long last = Math.min(to.getTimeInMillis(), end.getTimeInMillis());
+        for (long time = firstAtOrAfter(from.getTimeInMillis()); time <= last; time += getStep()) {
+            alerts.add(toAlert(time));
+        }
         return alerts;
     }
+
+    @Override
+    public String toString() {
+        return message + " - " + frequency.toString().toLowerCase() + " from " + start + " to " + end;
+    }
+
+    /**
+     * Writes a recurring alert in the binary save format
+     *
+     * @param out The writer
+     * @param g   The recurring alert
+     */
+    public static void write(BinaryWriter out, AlertGenerator g) {
+        out.writeString(g.message);
+        out.writeVarInt(g.frequency.ordinal());
+        DateTime.write(out, g.start);
+        DateTime.write(out, g.end);
+    }
+
+    /**
+     * @param in The reader
+     * @return A recurring alert written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static AlertGenerator read(BinaryReader in) throws IOException {
+        String message = in.readString();
+        int frequency = in.readVarInt();
+        if (frequency >= FREQUENCY.values().length) {
+            throw new StreamCorruptedException("Unknown alert frequency " + frequency);
+        }
+        DateTime start = DateTime.read(in);
+        DateTime end = DateTime.read(in);
+        return new AlertGenerator(message, FREQUENCY.values()[frequency], start, end);
+    }
 }
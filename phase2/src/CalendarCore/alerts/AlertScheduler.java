@@ -0,0 +1,195 @@
+package CalendarCore.alerts;
+
+import CalendarCore.events.Event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Keeps the alerts of a set of events which have not fired yet in a queue ordered by time, so that each tick of the
+ * clock only looks at the alerts which are due instead of every alert of every event.
+ */
+public class AlertScheduler {
+
+    /**
+     * An alert waiting to fire, with the event it belongs to. A recurring alert has a single entry for its next
+     * alert, which is moved on to the following one when it fires.
+     */
+    private static class Entry {
+        private Event event;
+        private Alert alert;
+        private AlertGenerator generator;
+        private long time;
+
+        private Entry(Event event, Alert alert) {
+            this.event = event;
+            this.alert = alert;
+            this.time = alert.getTime().getTimeInMillis();
+        }
+
+        private Entry(Event event, AlertGenerator generator, long time) {
+            this.event = event;
+            this.generator = generator;
+            this.time = time;
+        }
+    }
+
+    /**
+     * The events whose alerts are scheduled
+     */
+    private Set<Event> events = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * The alerts which have not fired yet, earliest first
+     */
+    private PriorityQueue<Entry> pending = new PriorityQueue<>(Comparator.comparingLong(entry -> entry.time));
+
+    /**
+     * The end of the last window of time alerts were fired for. No pending alert is before it.
+     */
+    private long time = Long.MIN_VALUE;
+
+    /**
+     * @param events The events whose alerts to schedule
+     */
+    public AlertScheduler(ArrayList<Event> events) {
+        for (Event e : events) {
+            addEvent(e);
+        }
+    }
+
+    /**
+     * Schedules the alerts of an event
+     *
+     * @param e The event
+     */
+    public void addEvent(Event e) {
+        if (events.add(e)) {
+            scheduleAll(e);
+        }
+    }
+
+    /**
+     * Stops the alerts of an event from firing
+     *
+     * @param e The event
+     */
+    public void removeEvent(Event e) {
+        if (events.remove(e)) {
+            pending.removeIf(entry -> entry.event == e);
+        }
+    }
+
+    /**
+     * Schedules an alert which was added to an event. Nothing is scheduled if the event's alerts are not.
+     *
+     * @param e     The event the alert was added to
+     * @param alert The alert
+     */
+    public void addAlert(Event e, Alert alert) {
+        if (events.contains(e)) {
+            schedule(new Entry(e, alert));
+        }
+    }
+
+    /**
+     * Stops an alert which was removed from an event from firing
+     *
+     * @param e     The event the alert was removed from
+     * @param alert The alert
+     */
+    public void removeAlert(Event e, Alert alert) {
+        pending.removeIf(entry -> entry.event == e && entry.alert == alert);
+    }
+
+    /**
+     * Schedules a recurring alert which was added to an event. Nothing is scheduled if the event's alerts are not.
+     *
+     * @param e         The event the recurring alert was added to
+     * @param generator The recurring alert
+     */
+    public void addAlertGenerator(Event e, AlertGenerator generator) {
+        if (events.contains(e)) {
+            scheduleNext(new Entry(e, generator, 0), time);
+        }
+    }
+
+    /**
+     * Stops a recurring alert which was removed from an event from firing
+     *
+     * @param e         The event the recurring alert was removed from
+     * @param generator The recurring alert
+     */
+    public void removeAlertGenerator(Event e, AlertGenerator generator) {
+        pending.removeIf(entry -> entry.event == e && entry.generator == generator);
+    }
+
+    /**
+     * Schedules every alert and recurring alert of an event which is not before the current time
+     */
+    private void scheduleAll(Event e) {
+        for (Alert alert : e.getAlerts()) {
+            schedule(new Entry(e, alert));
+        }
+        for (AlertGenerator generator : e.getAlertGenerators()) {
+            scheduleNext(new Entry(e, generator, 0), time);
+        }
+    }
+
+    /**
+     * Moves the entry of a recurring alert to its first alert at or after from, if it has one
+     */
+    private void scheduleNext(Entry entry, long from) {
+        entry.time = entry.generator.firstAtOrAfter(from);
+        if (entry.time != Long.MAX_VALUE) {
+            pending.add(entry);
+        }
+    }
+
+    private void schedule(Entry entry) {
+        // Alerts the clock has already passed cannot fire unless the clock goes back, which rebuilds the queue
+        if (entry.time >= time) {
+            pending.add(entry);
+        }
+    }
+
+    /**
+     * Fires the alerts between start and end. Alerts between the last window and start are skipped.
+     * Moving start back before the end of the last window reschedules every alert from start.
+     *
+     * @param start The start of the window in milliseconds
+     * @param end   The end of the window in milliseconds
+     * @return The alerts from start to end inclusive, earliest first
+     */
+    public ArrayList<Alert> due(long start, long end) {
+        if (start < time) {
+            time = start;
+            pending.clear();
+            for (Event e : events) {
+                scheduleAll(e);
+            }
+        }
+
+        ArrayList<Alert> alerts = new ArrayList<>();
+        while (!pending.isEmpty() && pending.peek().time <= end) {
+            Entry entry = pending.poll();
+            if (entry.generator == null) {
+                if (entry.time >= start) {
+                    alerts.add(entry.alert);
+                }
+            } else if (entry.time < start) {
+                // Skips the alerts before the window without generating them
+                scheduleNext(entry, start);
+            } else {
+                alerts.add(entry.generator.toAlert(entry.time));
+                scheduleNext(entry, entry.time + 1);
+            }
+        }
+        time = Math.max(time, end);
+        return alerts;
+    }
+}
@@ -3,54 +3,214 @@ package CalendarCore.alerts;
 import CalendarCore.dates.DateTime;
 import CalendarCore.events.Event;
 import CalendarCore.events.SeriesGenerator;
+import CalendarCore.metrics.Metrics;
+import CalendarCore.metrics.Timer;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
+import CalendarCore.util.LongHashSet;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 
 public class AlertSystem implements Serializable {
 
+    /**
+     * Fixed so that calendars saved before the alert scheduler was added can still be read
+     */
+    private static final long serialVersionUID = -9122532904501874898L;
+
+    /**
+     * How long finding the alerts due in a tick and the alerts at a time take
+     */
+    private static final Timer DUE_ALERTS_TIMER = Metrics.timer("AlertSystem.getDueAlerts");
+    private static final Timer GET_ALERTS_TIMER = Metrics.timer("AlertSystem.getAlerts");
+
+    /**
+     * The pending alerts of the single events, built from the events the first time alerts are fired
+     */
+    private transient AlertScheduler scheduler;
+
+    /**
+     * The ids of the events whose alerts were added or removed since takeChangedIds was last called
+     */
+    private transient LongHashSet changedIds;
+
     /**
      * @param e        - Event to which the alert is to be added.
      * @param message  - message that the alert should display.
      * @param dateTime - Time of the Alert
      */
-    public void addAlert(Event e, String message, DateTime dateTime) {
+    public synchronized void addAlert(Event e, String message, DateTime dateTime) {
         Alert a = new Alert(message, dateTime);
         ArrayList<Alert> ar = new ArrayList<>();
         ar.add(a);
         e.addAlerts(ar);
+        changed(e);
+        if (scheduler != null) {
+            scheduler.addAlert(e, a);
+        }
     }
 
     /**
+     * Adds an alert which recurs from startTime until the event starts. Only the rule is stored on the event, its
+     * alerts are generated when they are needed.
+     *
      * @param event     - event to which the SeriesAlert is to be added.
      * @param message   - message which the alert should display
      * @param freq      - frequency with which the series alert should recur
      * @param startTime - starting time of the alert.
      */
-    public void addSeriesAlert(Event event, String message, AlertGenerator.FREQUENCY freq,
-                               DateTime startTime) {
-        AlertGenerator ag = new AlertGenerator(message, freq);
-        event.addAlerts(ag.generate(startTime, event.getStart()));
+    public synchronized void addSeriesAlert(Event event, String message, AlertGenerator.FREQUENCY freq,
+                                            DateTime startTime) {
+        AlertGenerator ag = new AlertGenerator(message, freq, startTime, event.getStart());
+        event.addAlertGenerator(ag);
+        changed(event);
+        if (scheduler != null) {
+            scheduler.addAlertGenerator(event, ag);
+        }
+    }
+
+    /**
+     * @param e     - event from which the alert is to be removed.
+     * @param alert - the alert to remove.
+     */
+    public synchronized void removeAlert(Event e, Alert alert) {
+        e.removeAlert(alert);
+        changed(e);
+        if (scheduler != null) {
+            scheduler.removeAlert(e, alert);
+        }
     }
 
-    public ArrayList<Alert> getAlerts(ArrayList<Event> events, ArrayList<SeriesGenerator> generators, DateTime start,
-                                      DateTime end) {
-        ArrayList<Alert> alerts = new ArrayList<>();
+    /**
+     * @param e         - event from which the recurring alert is to be removed.
+     * @param generator - the recurring alert to remove.
+     */
+    public synchronized void removeSeriesAlert(Event e, AlertGenerator generator) {
+        e.removeAlertGenerator(generator);
+        changed(e);
+        if (scheduler != null) {
+            scheduler.removeAlertGenerator(e, generator);
+        }
+    }
 
-        for (Event e : events) {
-            ArrayList<Alert> allAlerts = e.getAlerts();
-            for (Alert alert : allAlerts) {
-                if (alert.getTime().compareTo(start) >= 0 && alert.getTime().compareTo(end) <= 0) {
-                    alerts.add(alert);
-                }
+    private void changed(Event e) {
+        if (changedIds == null) {
+            changedIds = new LongHashSet();
+        }
+        changedIds.add(e.getId());
+    }
+
+    /**
+     * @return the ids of the events whose alerts were added or removed since this was last called, for the journal
+     */
+    public synchronized long[] takeChangedIds() {
+        if (changedIds == null) {
+            return new long[0];
+        }
+        long[] ids = changedIds.toArray();
+        changedIds = null;
+        return ids;
+    }
+
+    /**
+     * Schedules the alerts of an event added to the event system
+     *
+     * @param e - the single event which was added
+     */
+    public synchronized void eventAdded(Event e) {
+        if (scheduler != null) {
+            scheduler.addEvent(e);
+        }
+    }
+
+    /**
+     * Stops the alerts of an event deleted from the event system
+     *
+     * @param e - the single event which was deleted
+     */
+    public synchronized void eventRemoved(Event e) {
+        if (scheduler != null) {
+            scheduler.removeEvent(e);
+        }
+    }
+
+    /**
+     * Fires the alerts due in a tick of the clock. Unlike getAlerts, an alert of a single event is only returned by
+     * the first tick it falls in, and only the alerts in that tick are looked at.
+     *
+     * @param events     - the single events of the event system, used to schedule their alerts the first time
+     * @param generators - the series generators of the event system
+     * @param start      - start of the tick
+     * @param end        - end of the tick
+     * @return the alerts from start to end
+     */
+    public synchronized ArrayList<Alert> getDueAlerts(ArrayList<Event> events, ArrayList<SeriesGenerator> generators,
+                                                      DateTime start, DateTime end) {
+        long startNanos = DUE_ALERTS_TIMER.start();
+        try {
+            if (scheduler == null) {
+                scheduler = new AlertScheduler(events);
             }
+            ArrayList<Alert> alerts = scheduler.due(start.getTimeInMillis(), end.getTimeInMillis());
+            addGeneratorAlerts(alerts, generators, start, end);
+            return alerts;
+        } finally {
+            DUE_ALERTS_TIMER.stop(startNanos);
         }
+    }
+
+    public synchronized ArrayList<Alert> getAlerts(ArrayList<Event> events, ArrayList<SeriesGenerator> generators,
+                                                   DateTime start, DateTime end) {
+        long startNanos = GET_ALERTS_TIMER.start();
+        try {
+            ArrayList<Alert> alerts = new ArrayList<>();
 
+            for (Event e : events) {
+                alerts.addAll(e.getAlerts(start, end));
+            }
+
+            addGeneratorAlerts(alerts, generators, start, end);
+            return alerts;
+        } finally {
+            GET_ALERTS_TIMER.stop(startNanos);
+        }
+    }
+
+    private void addGeneratorAlerts(ArrayList<Alert> alerts, ArrayList<SeriesGenerator> generators, DateTime start,
+                                    DateTime end) {
         for (SeriesGenerator sg : generators) {
             if (sg.getCreatedOn().compareTo(start) >= 0 && sg.getEndDate().compareTo(end) <= 0) {
                 alerts.addAll(sg.getTemplate().getAlerts());
+                alerts.addAll(sg.getTemplate().generateAlerts(start, end));
             }
         }
-        return alerts;
+    }
+
+    /**
+     * Writes an alert system in the binary save format. An alert system shared by several owners is only written once.
+     *
+     * @param out The writer
+     * @param a   The alert system
+     */
+    public static void write(BinaryWriter out, AlertSystem a) {
+        // An alert system has no state of its own to write
+        out.writeReference(a);
+    }
+
+    /**
+     * @param in The reader
+     * @return An alert system written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static AlertSystem read(BinaryReader in) throws IOException {
+        Object read = in.readReference();
+        if (read != BinaryReader.NEW) {
+            return BinaryReader.cast(read, AlertSystem.class);
+        }
+        AlertSystem a = new AlertSystem();
+        in.register(a);
+        return a;
     }
 }
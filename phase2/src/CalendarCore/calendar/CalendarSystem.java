@@ -7,12 +7,20 @@ import CalendarCore.events.Event;
 import CalendarCore.events.EventSystem;
 import CalendarCore.events.SeriesGenerator;
 import CalendarCore.memos.MemoSystem;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 
 public class CalendarSystem implements Serializable {
 
+    /**
+     * Fixed so that calendars saved before the binary save format was added can still be read
+     */
+    private static final long serialVersionUID = -8453848364228576303L;
+
     /**
      * Name of the CalendarSystem
      */
@@ -89,6 +97,7 @@ public class CalendarSystem implements Serializable {
         ArrayList<Alert> allAlerts = new ArrayList<>();
         for (Event event : eventSystem.getEventsBetween(start, end)) {
             allAlerts.addAll(event.getAlerts());
+            allAlerts.addAll(event.generateAlerts(start, end));
         }
         return allAlerts;
     }
@@ -114,5 +123,38 @@ public class CalendarSystem implements Serializable {
         return getAlertSystem().getAlerts(eventSystem.getListOfEvents(), eventSystem.getListOfGenerators(), time, time5);
     }
 
-}
+    /**
+     * Writes a calendar in the binary save format. A calendar referred to more than once is only written once.
+     *
+     * @param out The writer
+     * @param cs  The calendar. May be null.
+     */
+    public static void write(BinaryWriter out, CalendarSystem cs) {
+        if (!out.writeReference(cs)) {
+            return;
+        }
+        out.writeString(cs.nameOfCalendar);
+        MemoSystem.write(out, cs.memoSystem);
+        AlertSystem.write(out, cs.alertSystem);
+        EventSystem.write(out, cs.eventSystem);
+    }
 
+    /**
+     * @param in The reader
+     * @return A calendar written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static CalendarSystem read(BinaryReader in) throws IOException {
+        Object read = in.readReference();
+        if (read != BinaryReader.NEW) {
+            return BinaryReader.cast(read, CalendarSystem.class);
+        }
+        CalendarSystem cs = new CalendarSystem(null);
+        in.register(cs);
+        cs.nameOfCalendar = in.readString();
+        cs.memoSystem = MemoSystem.read(in);
+        cs.alertSystem = AlertSystem.read(in);
+        cs.eventSystem = EventSystem.read(in);
+        return cs;
+    }
+}
@@ -1,25 +1,63 @@
 package CalendarCore.dates;
 
 import CalendarCore.exceptions.DateNotSupportedException;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.TimeZone;
 
 public class DateTime implements Comparable<DateTime>, Serializable {
 
     /**
-     * The Calender which is inside the envelope class
+     * Fixed to the value of the GregorianCalendar based DateTime so its saved dates can still be read
      */
-    private GregorianCalendar gcal;
+    private static final long serialVersionUID = 488078336348800032L;
 
     /**
      * The format for displaying the DateTime
      */
     protected static final SimpleDateFormat fmt = new SimpleDateFormat("E dd/MM/yyyy hh:mm a");
 
+    /**
+     * The time zone the calendar is displayed in
+     */
+    private static final TimeZone zone = TimeZone.getDefault();
+
+    private static final long MILLIS_IN_MINUTE = 60 * 1000;
+    private static final long MILLIS_IN_DAY = 24 * 60 * MILLIS_IN_MINUTE;
+
+    /**
+     * The DateTime in milliseconds since the epoch. This is the only state of a DateTime, everything else is
+     * derived from it.
+     */
+    private long millis;
+
+    /**
+     * Whether the cached fields below have been computed from millis
+     */
+    private transient volatile boolean fieldsComputed;
+
+    /**
+     * The calendar fields of millis in the local time zone
+     */
+    private transient int year;
+    private transient int month;
+    private transient int date;
+    private transient int hourOfDay;
+    private transient int minute;
+    private transient int dayOfWeek;
+
 
     /**
      * Construct based on a string of the form dd/MM/yyyy
@@ -27,16 +65,10 @@ public class DateTime implements Comparable<DateTime>, Serializable {
      * @param date The date
      */
     public DateTime(String date) {
-        gcal = new GregorianCalendar();
-        gcal.set(Calendar.AM_PM, Calendar.AM);
-
         String[] dates = date.split("/");
-        gcal.set(Calendar.DATE, Integer.parseInt(dates[0]));
         // We subtract 1 as the months are stored 0-11
-        gcal.set(Calendar.MONTH, Integer.parseInt(dates[1]) - 1);
-        gcal.set(Calendar.YEAR, Integer.parseInt(dates[2]));
-        gcal.set(Calendar.HOUR, 1);
-        gcal.set(Calendar.MINUTE, 0);
+        millis = fromFields(Integer.parseInt(dates[2]), Integer.parseInt(dates[1]) - 1, Integer.parseInt(dates[0]),
+                1, 0, System.currentTimeMillis());
     }
 
     /**
@@ -46,30 +78,21 @@ public class DateTime implements Comparable<DateTime>, Serializable {
      * @param time The time
      */
     public DateTime(String date, String time) {
-        gcal = new GregorianCalendar();
-        gcal.set(Calendar.AM_PM, Calendar.AM);
-
         String[] dates = date.split("/");
-        gcal.set(Calendar.DATE, Integer.parseInt(dates[0]));
-        gcal.set(Calendar.MONTH, Integer.parseInt(dates[1]) - 1);
-        gcal.set(Calendar.YEAR, Integer.parseInt(dates[2]));
-
         String[] times = time.split(":");
-        gcal.set(Calendar.MINUTE, Integer.parseInt(times[1]));
-        if (times[2].equalsIgnoreCase("am")) {
-            gcal.set(Calendar.HOUR, Integer.parseInt(times[0]));
-        } else {
-            gcal.set(Calendar.HOUR, Integer.parseInt(times[0]) + 12);
+        int hour = Integer.parseInt(times[0]);
+        if (!times[2].equalsIgnoreCase("am")) {
+            hour += 12;
         }
+        millis = fromFields(Integer.parseInt(dates[2]), Integer.parseInt(dates[1]) - 1, Integer.parseInt(dates[0]),
+                hour, Integer.parseInt(times[1]), System.currentTimeMillis());
     }
 
     /**
      * Constructs a DateTime as far in the future as possible
      */
     public DateTime() {
-        gcal = new GregorianCalendar();
-        gcal.set(Calendar.AM_PM, Calendar.AM);
-        gcal.setTime(new Date(Long.MAX_VALUE));
+        millis = Long.MAX_VALUE;
     }
 
     /**
@@ -82,14 +105,83 @@ public class DateTime implements Comparable<DateTime>, Serializable {
      * @param minute     The minute of the day (From 0-60)
      */
     public DateTime(int year, int month, int dayOfMonth, int hourOfDay, int minute) {
-        gcal = new GregorianCalendar(year, month, dayOfMonth, hourOfDay, minute);
+        millis = fromFields(year, month, dayOfMonth, hourOfDay, minute, 0);
+    }
+
+    /**
+     * @param millis The DateTime in milliseconds
+     */
+    private DateTime(long millis) {
+        this.millis = millis;
+    }
+
+    /**
+     * Converts local calendar fields to milliseconds. Fields out of range roll over into the next larger field
+     * the same way a lenient GregorianCalendar does.
+     *
+     * @param year       The year
+     * @param month      The month (0-11)
+     * @param dayOfMonth The day of the month
+     * @param hourOfDay  The hour of the day
+     * @param minute     The minute of the hour
+     * @param subMinute  A time whose seconds and milliseconds are kept
+     * @return The DateTime in milliseconds
+     */
+    private static long fromFields(int year, int month, int dayOfMonth, int hourOfDay, int minute, long subMinute) {
+        LocalDateTime local = LocalDateTime.of(year, 1, 1, 0, 0)
+                .plusMonths(month)
+                .plusDays(dayOfMonth - 1)
+                .plusHours(hourOfDay)
+                .plusMinutes(minute);
+        // A time inside a daylight savings overlap is read as standard time, as GregorianCalendar does
+        long local0 = ZonedDateTime.of(local, zone.toZoneId()).withLaterOffsetAtOverlap().toInstant().toEpochMilli();
+        return local0 + Math.floorMod(subMinute, MILLIS_IN_MINUTE);
+    }
+
+    /**
+     * @return This DateTime in the local time zone
+     */
+    private ZonedDateTime toZoned() {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), zone.toZoneId());
+    }
+
+    /**
+     * Computes and caches the calendar fields of millis in the local time zone
+     */
+    private void computeFields() {
+        if (fieldsComputed) {
+            return;
+        }
+        // Split before adding the offset so the latest DateTime cannot overflow
+        long localMillisOfDay = Math.floorMod(millis, MILLIS_IN_DAY) + zone.getOffset(millis);
+        long epochDay = Math.floorDiv(millis, MILLIS_IN_DAY) + Math.floorDiv(localMillisOfDay, MILLIS_IN_DAY);
+        long millisOfDay = Math.floorMod(localMillisOfDay, MILLIS_IN_DAY);
+
+        hourOfDay = (int) (millisOfDay / (60 * MILLIS_IN_MINUTE));
+        minute = (int) (millisOfDay / MILLIS_IN_MINUTE % 60);
+        // The epoch was a Thursday. Calendar counts the days of the week from Sunday = 1
+        dayOfWeek = Math.floorMod(epochDay + 4, 7) + 1;
+
+        // Converts days since the epoch to a civil year, month and day
+        long days = epochDay + 719468;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        date = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        month = (int) (shiftedMonth < 10 ? shiftedMonth + 2 : shiftedMonth - 10);
+        year = (int) (yearOfEra + era * 400 + (month <= 1 ? 1 : 0));
+
+        fieldsComputed = true;
     }
 
     /**
      * @return The 24-hour hour and the minute of the hour
      */
     public int[] time() {
-        return new int[]{gcal.get(Calendar.HOUR_OF_DAY), gcal.get(Calendar.MINUTE)};
+        computeFields();
+        return new int[]{hourOfDay, minute};
     }
 
     /**
@@ -97,26 +189,24 @@ public class DateTime implements Comparable<DateTime>, Serializable {
      */
     @Override
     public String toString() {
-        return fmt.format(gcal.getTime());
+        return fmt.format(new Date(millis));
     }
 
     public String toSimpleString() {
         SimpleDateFormat fmt = new SimpleDateFormat("MMMM yyyy");
-        return fmt.format(gcal.getTime());
+        return fmt.format(new Date(millis));
     }
 
     public String toFmtString(String pattern) {
         SimpleDateFormat fmt = new SimpleDateFormat(pattern);
-        return fmt.format(gcal.getTime());
+        return fmt.format(new Date(millis));
     }
 
     /**
      * @return A copy of the DateTime
      */
     public DateTime clone() {
-        DateTime temp = new DateTime();
-        temp.setTimeInMillis(getTimeInMillis());
-        return temp;
+        return new DateTime(millis);
     }
 
     /**
@@ -124,10 +214,9 @@ public class DateTime implements Comparable<DateTime>, Serializable {
      * @return True iff the 2 DateTimes have the exact same DATE
      */
     public boolean equalDates(DateTime other) {
-        boolean year = gcal.get(Calendar.YEAR) == other.get(Calendar.YEAR);
-        boolean month = gcal.get(Calendar.MONTH) == other.get(Calendar.MONTH);
-        boolean day = gcal.get(Calendar.DATE) == other.get(Calendar.DATE);
-        return year && month && day;
+        computeFields();
+        other.computeFields();
+        return year == other.year && month == other.month && date == other.date;
     }
 
 
@@ -135,42 +224,28 @@ public class DateTime implements Comparable<DateTime>, Serializable {
      * @return The date directly after this DateTime with the same time
      */
     public DateTime nextDate() {
-        DateTime temp = this.clone();
-
-        DateTime max = new DateTime();
-        if (temp.compareTo(max) == 0) {
+        if (millis == Long.MAX_VALUE) {
             throw new DateNotSupportedException();
         }
-
-        temp.gcal.add(Calendar.DATE, 1);
-        return temp;
+        return new DateTime(toZoned().plusDays(1).toInstant().toEpochMilli());
     }
 
     /**
      * @return The date directly before this DateTime with the same time
      */
     public DateTime prevDate() {
-        DateTime temp = this.clone();
-
-        DateTime min = new DateTime();
-        min.setTimeInMillis(0);
-        if (temp.compareTo(min) == 0) {
+        if (millis == 0) {
             throw new DateNotSupportedException();
         }
-        temp.gcal.add(Calendar.DATE, -1);
-        return temp;
+        return new DateTime(toZoned().minusDays(1).toInstant().toEpochMilli());
     }
 
     public DateTime offsetMonths(int n) {
-        DateTime temp = this.clone();
-        temp.gcal.add(Calendar.MONTH, n);
-        return temp;
+        return new DateTime(toZoned().plusMonths(n).toInstant().toEpochMilli());
     }
 
     public DateTime offsetWeeks(int n) {
-        DateTime temp = this.clone();
-        temp.gcal.add(Calendar.WEEK_OF_YEAR, n);
-        return temp;
+        return new DateTime(toZoned().plusWeeks(n).toInstant().toEpochMilli());
     }
 
     /**
@@ -178,19 +253,20 @@ public class DateTime implements Comparable<DateTime>, Serializable {
      * @return The
      */
     public int get(int field) {
+        computeFields();
         switch (field) {
             case Calendar.YEAR:
-                return gcal.get(Calendar.YEAR);
+                return year;
             case Calendar.MONTH:
-                return gcal.get(Calendar.MONTH);
+                return month;
             case Calendar.DATE:
-                return gcal.get(Calendar.DATE);
+                return date;
             case Calendar.HOUR:
-                return gcal.get(Calendar.HOUR);
+                return hourOfDay % 12;
             case Calendar.MINUTE:
-                return gcal.get(Calendar.MINUTE);
+                return minute;
             case Calendar.DAY_OF_WEEK:
-                return gcal.get(Calendar.DAY_OF_WEEK);
+                return dayOfWeek;
         }
         return -1;
     }
@@ -199,21 +275,23 @@ public class DateTime implements Comparable<DateTime>, Serializable {
      * @return The DateTime in milliseconds
      */
     public long getTimeInMillis() {
-        return gcal.getTimeInMillis();
+        return millis;
     }
 
     /**
-     * Set the DateTime
+     * Set the DateTime. This is the only way a DateTime can change, every other operation returns a new DateTime.
      *
      * @param millis The new DateTime in milliseconds
      */
     public void setTimeInMillis(long millis) {
-        gcal.setTimeInMillis(millis);
+        this.millis = millis;
+        fieldsComputed = false;
     }
 
 
     public boolean dateInMonth(int month, int year) {
-        return gcal.get(Calendar.MONTH) == month && gcal.get(Calendar.YEAR) == year;
+        computeFields();
+        return this.month == month && this.year == year;
     }
 
     /**
@@ -222,18 +300,52 @@ public class DateTime implements Comparable<DateTime>, Serializable {
      */
     @Override
     public int compareTo(DateTime o) {
-        return Long.compare(gcal.getTimeInMillis(), o.getTimeInMillis());
+        return Long.compare(millis, o.millis);
     }
 
     /**
      * @return 1:00 AM of this day time
      */
     public DateTime getStartOfDay() {
-        DateTime dawn = this.clone();
-        dawn.gcal.set(Calendar.HOUR_OF_DAY, 1);
-        dawn.gcal.set(Calendar.MINUTE, 0);
-        return dawn;
+        return new DateTime(toZoned().withHour(1).withMinute(0).toInstant().toEpochMilli());
+    }
+
+    /**
+     * Reads both DateTimes saved as milliseconds and DateTimes saved by the GregorianCalendar based version
+     *
+     * @param in The stream to read from
+     * @throws IOException            if the stream cannot be read
+     * @throws ClassNotFoundException if a saved class cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        if (fields.getObjectStreamClass().getField("gcal") != null) {
+            GregorianCalendar gcal = (GregorianCalendar) fields.get("gcal", null);
+            millis = gcal.getTimeInMillis();
+        } else {
+            millis = fields.get("millis", 0L);
+        }
     }
 
+    /**
+     * Writes a DateTime in the binary save format
+     *
+     * @param out The writer
+     * @param d   The DateTime. May be null.
+     */
+    public static void write(BinaryWriter out, DateTime d) {
+        out.writeBoolean(d != null);
+        if (d != null) {
+            out.writeVarLong(d.millis);
+        }
+    }
 
+    /**
+     * @param in The reader
+     * @return A DateTime written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static DateTime read(BinaryReader in) throws IOException {
+        return in.readBoolean() ? new DateTime(in.readVarLong()) : null;
+    }
 }
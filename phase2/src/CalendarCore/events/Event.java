@@ -2,12 +2,22 @@ package CalendarCore.events;
 
 import CalendarCore.dates.DateTime;
 import CalendarCore.alerts.Alert;
+import CalendarCore.alerts.AlertGenerator;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 
 public class Event implements Comparable<Event>, Serializable {
 
+    /**
+     * Fixed so that events saved before recurring alerts were added can still be read
+     */
+    private static final long serialVersionUID = 2038232374778978573L;
+
     /**
      * A unique id for a given event
      */
@@ -33,12 +43,16 @@ public class Event implements Comparable<Event>, Serializable {
      */
     protected ArrayList<Alert> alerts;
 
+    /**
+     * The 0+ recurring alerts for this event. null for events saved before recurring alerts were added.
+     */
+    protected ArrayList<AlertGenerator> alertGenerators;
+
     /**
      * The 0+ tags for the event
      */
     protected ArrayList<String> tags;
 
-
     /**
      * Useless constructor to make code compile but never really gets used.
      */
@@ -72,6 +86,13 @@ public class Event implements Comparable<Event>, Serializable {
         return start;
     }
 
+    /**
+     * @return The start date and time in milliseconds
+     */
+    public long getStartMillis() {
+        return start.getTimeInMillis();
+    }
+
     /**
      * @param start The new Start date and time
      */
@@ -86,6 +107,13 @@ public class Event implements Comparable<Event>, Serializable {
         return end;
     }
 
+    /**
+     * @return The end date and time in milliseconds
+     */
+    public long getEndMillis() {
+        return end.getTimeInMillis();
+    }
+
     /**
      * @param end The new end date and time
      */
@@ -101,6 +129,9 @@ public class Event implements Comparable<Event>, Serializable {
     }
 
     /**
+     * Changes the title. The title of an event in an event system must be changed through EventSystem.setTitle or
+     * editSingleEvent, which keep its text index up to date.
+     *
      * @param title The new event title
      */
     public void setTitle(String title) {
@@ -110,17 +141,67 @@ public class Event implements Comparable<Event>, Serializable {
     /**
      * @return The Alerts for this event
      */
-    public ArrayList<Alert> getAlerts() {
+    public List<Alert> getAlerts() {
         return alerts;
     }
 
     /**
-     * @return The tags for this event
+     * @return The recurring alerts for this event
      */
-    public ArrayList<String> getTags() {
+    public List<AlertGenerator> getAlertGenerators() {
+        if (alertGenerators == null) {
+            alertGenerators = new ArrayList<>();
+        }
+        return alertGenerators;
+    }
+
+    /**
+     * @param start The start of the window
+     * @param end   The end of the window
+     * @return The single alerts and the alerts generated by the recurring alerts from start to end
+     */
+    public ArrayList<Alert> getAlerts(DateTime start, DateTime end) {
+        ArrayList<Alert> inWindow = new ArrayList<>();
+        for (Alert alert : getAlerts()) {
+            if (alert.getTime().compareTo(start) >= 0 && alert.getTime().compareTo(end) <= 0) {
+                inWindow.add(alert);
+            }
+        }
+        inWindow.addAll(generateAlerts(start, end));
+        return inWindow;
+    }
+
+    /**
+     * @param start The start of the window
+     * @param end   The end of the window
+     * @return The alerts generated by the recurring alerts from start to end
+     */
+    public ArrayList<Alert> generateAlerts(DateTime start, DateTime end) {
+        ArrayList<Alert> generated = new ArrayList<>();
+        for (AlertGenerator generator : getAlertGenerators()) {
+            generated.addAll(generator.generate(start, end));
+        }
+        return generated;
+    }
+
+    /**
+     * @return The tags for this event. Change them through EventSystem.setTags, so the indexes of its event systems
+     * notice.
+     */
+    public List<String> getTags() {
         return tags;
     }
 
+    /**
+     * Replaces the tags of this event. The tags of an event in an event system must be set through
+     * EventSystem.setTags, which keeps its tag and text indexes up to date. They are not rebuilt otherwise.
+     *
+     * @param tags The new tags
+     */
+    public void setTags(ArrayList<String> tags) {
+        this.tags = new ArrayList<>(tags);
+    }
+
     /**
      * Adds 1+ alerts to the alerts ArrayList
      * Precondition: alerts != []
@@ -131,6 +212,31 @@ public class Event implements Comparable<Event>, Serializable {
         this.alerts.addAll(alerts);
     }
 
+    /**
+     * Adds a recurring alert
+     *
+     * @param generator The recurring alert to add
+     */
+    public void addAlertGenerator(AlertGenerator generator) {
+        getAlertGenerators().add(generator);
+    }
+
+    /**
+     * @param alert The alert to remove
+     * @return true iff this event had the alert
+     */
+    public boolean removeAlert(Alert alert) {
+        return alerts.remove(alert);
+    }
+
+    /**
+     * @param generator The recurring alert to remove
+     * @return true iff this event had the recurring alert
+     */
+    public boolean removeAlertGenerator(AlertGenerator generator) {
+        return getAlertGenerators().remove(generator);
+    }
+
     /**
      * Adds 1+ strings to the tags ArrayList
      * Precondition: tags != []
@@ -149,19 +255,28 @@ public class Event implements Comparable<Event>, Serializable {
      * @return The new SeriesEvent
      */
     public SeriesEvent toSeries(String seriesName) {
-        SeriesEvent temp = new SeriesEvent(seriesName, seriesName + ":" + title, start, end, null);
-        temp.addAlerts(alerts);
-        temp.addTags(tags);
+        SeriesEvent temp = new SeriesEvent(seriesName, seriesName + ":" + getTitle(), getStart(), getEnd(), null);
+        temp.alerts.addAll(getAlerts());
+        temp.getAlertGenerators().addAll(getAlertGenerators());
+        temp.tags.addAll(getTags());
         temp.id = this.id;
         return temp;
     }
 
+    /**
+     * @return An event which can be changed: this event, or for an occurrence generated from a series, which only
+     * shows the series' template at other times, a copy of it
+     */
+    public Event materialize() {
+        return this;
+    }
+
     /**
      * @return A string representation of the event
      */
     @Override
     public String toString() {
-        return title + ": " + start + " to " + end;
+        return getTitle() + ": " + getStart() + " to " + getEnd();
     }
 
     /**
@@ -172,7 +287,7 @@ public class Event implements Comparable<Event>, Serializable {
      */
     @Override
     public int compareTo(Event o) {
-        return start.compareTo(o.start);
+        return Long.compare(getStartMillis(), o.getStartMillis());
     }
 
     /**
@@ -182,11 +297,11 @@ public class Event implements Comparable<Event>, Serializable {
      * @return boolean to represent whether the event is on date
      */
     public boolean isOnDate(DateTime date) {
-        if ((this.start.getTimeInMillis() >= date.getTimeInMillis()) && this.start.getTimeInMillis() <= (date.getTimeInMillis() + 1000 * 60 * 60 * 24)) {
+        if ((getStartMillis() >= date.getTimeInMillis()) && getStartMillis() <= (date.getTimeInMillis() + 1000 * 60 * 60 * 24)) {
             return true;
         }
 
-        if ((this.start.getTimeInMillis() >= date.getTimeInMillis()) && this.start.getTimeInMillis() <= (date.getTimeInMillis() + 1000 * 60 * 60 * 24)) {
+        if ((getStartMillis() >= date.getTimeInMillis()) && getStartMillis() <= (date.getTimeInMillis() + 1000 * 60 * 60 * 24)) {
             return true;
         }
         return false;
@@ -199,11 +314,100 @@ public class Event implements Comparable<Event>, Serializable {
      * @return whether the tag matches or not
      */
     public boolean matchesTag(String tag) {
-        for (String t : tags) {
+        for (String t : getTags()) {
             if (t.equals(tag)) {
                 return true;
             }
         }
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes an event in the binary save format. An event shared by several owners is only written once.
+     *
+     * @param out The writer
+     * @param e   The event. May be null.
+     */
+    public static void write(BinaryWriter out, Event e) {
+        if (out.writeReference(e)) {
+            out.writeBoolean(e instanceof SeriesEvent);
+            e.writeFields(out);
+        }
+    }
+
+    /**
+     * @param in The reader
+     * @return An event written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static Event read(BinaryReader in) throws IOException {
+        Object read = in.readReference();
+        if (read != BinaryReader.NEW) {
+            return BinaryReader.cast(read, Event.class);
+        }
+        Event e = in.readBoolean() ? new SeriesEvent() : new Event();
+        in.register(e);
+        e.readFields(in);
+        return e;
+    }
+
+    /**
+     * Writes the fields of this event
+     *
+     * @param out The writer
+     */
+    protected void writeFields(BinaryWriter out) {
+        List<Alert> alerts = getAlerts();
+        List<String> tags = getTags();
+        out.writeVarLong(id);
+        DateTime.write(out, getStart());
+        DateTime.write(out, getEnd());
+        out.writeString(getTitle());
+
+        out.writeVarInt(alerts == null ? 0 : alerts.size());
+        if (alerts != null) {
+            for (Alert alert : alerts) {
+                Alert.write(out, alert);
+            }
+        }
+        out.writeVarInt(getAlertGenerators().size());
+        for (AlertGenerator generator : getAlertGenerators()) {
+            AlertGenerator.write(out, generator);
+        }
+        out.writeVarInt(tags == null ? 0 : tags.size());
+        if (tags != null) {
+            for (String tag : tags) {
+                out.writeString(tag);
+            }
+        }
+    }
+
+    /**
+     * Reads the fields written by writeFields into this event
+     *
+     * @param in The reader
+     * @throws IOException if the reader does not hold them
+     */
+    protected void readFields(BinaryReader in) throws IOException {
+        id = in.readVarLong();
+        start = DateTime.read(in);
+        end = DateTime.read(in);
+        title = in.readString();
+
+        int count = in.readVarInt();
+        alerts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            alerts.add(Alert.read(in));
+        }
+        count = in.readVarInt();
+        alertGenerators = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            alertGenerators.add(AlertGenerator.read(in));
+        }
+        count = in.readVarInt();
+        tags = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tags.add(in.readString());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package CalendarCore.events;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts events into past, ongoing and upcoming as time advances.
+ * Upcoming events wait in a queue ordered by start and ongoing events in a queue ordered by end, so moving the
+ * clock forward only touches the events which cross from one group into the next.
+ */
+class EventClassifier {
+
+    /**
+     * An event with the start and end times it was classified by
+     */
+    private static class Entry {
+        private Event event;
+        private long start;
+        private long end;
+
+        private Entry(Event event) {
+            this.event = event;
+            this.start = event.getStartMillis();
+            this.end = event.getEndMillis();
+        }
+    }
+
+    private static final Comparator<Entry> BY_START = Comparator.comparingLong(entry -> entry.start);
+    private static final Comparator<Entry> BY_END = Comparator.comparingLong(entry -> entry.end);
+
+    /**
+     * Events which have not started yet, earliest start first
+     */
+    private PriorityQueue<Entry> upcoming = new PriorityQueue<>(BY_START);
+
+    /**
+     * Events which have started but not ended, earliest end first
+     */
+    private PriorityQueue<Entry> ongoing = new PriorityQueue<>(BY_END);
+
+    /**
+     * Events which have ended
+     */
+    private ArrayList<Entry> past = new ArrayList<>();
+
+    /**
+     * The time in milliseconds the events are currently classified at
+     */
+    private long time;
+
+    /**
+     * Sorted copies of each group handed out by the getters. null when the group has changed since the last copy.
+     */
+    private ArrayList<Event> pastSnapshot;
+    private ArrayList<Event> ongoingSnapshot;
+    private ArrayList<Event> upcomingSnapshot;
+
+    /**
+     * @param time The time in milliseconds to classify events at
+     */
+    EventClassifier(long time) {
+        this.time = time;
+    }
+
+    /**
+     * @return The time in milliseconds the events are currently classified at
+     */
+    long getTime() {
+        return time;
+    }
+
+    /**
+     * Adds an event into the group it belongs to at the current time
+     *
+     * @param e The event to add
+     */
+    void add(Event e) {
+        Entry entry = new Entry(e);
+        if (time > entry.end) {
+            past.add(entry);
+            pastSnapshot = null;
+        } else if (time >= entry.start) {
+            ongoing.add(entry);
+            ongoingSnapshot = null;
+        } else {
+            upcoming.add(entry);
+            upcomingSnapshot = null;
+        }
+    }
+
+    /**
+     * @param events The events to add
+     */
+    void addAll(ArrayList<? extends Event> events) {
+        for (Event e : events) {
+            add(e);
+        }
+    }
+
+    /**
+     * Removes an event from whichever group it is in
+     *
+     * @param e The event to remove
+     */
+    void remove(Event e) {
+        if (upcoming.removeIf(entry -> entry.event == e)) {
+            upcomingSnapshot = null;
+        } else if (ongoing.removeIf(entry -> entry.event == e)) {
+            ongoingSnapshot = null;
+        } else if (past.removeIf(entry -> entry.event == e)) {
+            pastSnapshot = null;
+        }
+    }
+
+    /**
+     * Moves the events which start or end between the current time and now into their new groups
+     *
+     * @param now The new time in milliseconds
+     * @return False iff now is before the current time, in which case nothing is moved
+     */
+    boolean advanceTo(long now) {
+        if (now < time) {
+            return false;
+        }
+        time = now;
+
+        while (!upcoming.isEmpty() && upcoming.peek().start <= now) {
+            Entry entry = upcoming.poll();
+            upcomingSnapshot = null;
+            if (entry.end < now) {
+                past.add(entry);
+                pastSnapshot = null;
+            } else {
+                ongoing.add(entry);
+                ongoingSnapshot = null;
+            }
+        }
+
+        while (!ongoing.isEmpty() && ongoing.peek().end < now) {
+            past.add(ongoing.poll());
+            ongoingSnapshot = null;
+            pastSnapshot = null;
+        }
+        return true;
+    }
+
+    /**
+     * @return The events which have ended, sorted by start
+     */
+    ArrayList<Event> getPast() {
+        if (pastSnapshot == null) {
+            pastSnapshot = snapshot(past);
+        }
+        return pastSnapshot;
+    }
+
+    /**
+     * @return The events which have started but not ended, sorted by start
+     */
+    ArrayList<Event> getOngoing() {
+        if (ongoingSnapshot == null) {
+            ongoingSnapshot = snapshot(ongoing);
+        }
+        return ongoingSnapshot;
+    }
+
+    /**
+     * @return The events which have not started, sorted by start
+     */
+    ArrayList<Event> getUpcoming() {
+        if (upcomingSnapshot == null) {
+            upcomingSnapshot = snapshot(upcoming);
+        }
+        return upcomingSnapshot;
+    }
+
+    private static ArrayList<Event> snapshot(Iterable<Entry> entries) {
+        ArrayList<Entry> sorted = new ArrayList<>();
+        for (Entry entry : entries) {
+            sorted.add(entry);
+        }
+        sorted.sort(BY_START);
+
+        ArrayList<Event> events = new ArrayList<>(sorted.size());
+        for (Entry entry : sorted) {
+            events.add(entry.event);
+        }
+        return events;
+    }
+}
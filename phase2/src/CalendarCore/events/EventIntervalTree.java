@@ -0,0 +1,263 @@
+package CalendarCore.events;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * An augmented interval tree over the start and end times of single events.
+ * The tree is a treap ordered by start time where every node also knows the latest end time in its subtree,
+ * so point and range queries only visit the nodes which can possibly match: O(log n + k).
+ */
+class EventIntervalTree {
+
+    /**
+     * A node of the treap
+     */
+    private static class Node {
+        private Event event;
+        private long start;
+        private long end;
+        private long maxEnd;
+        private int priority;
+        private Node left;
+        private Node right;
+
+        private Node(Event event, int priority) {
+            this.event = event;
+            this.start = event.getStart().getTimeInMillis();
+            this.end = event.getEnd().getTimeInMillis();
+            this.maxEnd = end;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * The root of the treap
+     */
+    private Node root;
+
+    /**
+     * The number of events in the tree
+     */
+    private int size;
+
+    /**
+     * Source of the random heap priorities which keep the treap balanced
+     */
+    private Random random = new Random();
+
+    /**
+     * @return The number of events in the tree
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds an event to the tree using its current start and end times
+     *
+     * @param e The event to add
+     */
+    void insert(Event e) {
+        root = insert(root, new Node(e, random.nextInt()));
+        size++;
+    }
+
+    private Node insert(Node root, Node node) {
+        if (root == null) {
+            return node;
+        }
+        if (node.start < root.start) {
+            root.left = insert(root.left, node);
+            if (root.left.priority > root.priority) {
+                root = rotateRight(root);
+            }
+        } else {
+            root.right = insert(root.right, node);
+            if (root.right.priority > root.priority) {
+                root = rotateLeft(root);
+            }
+        }
+        update(root);
+        return root;
+    }
+
+    /**
+     * Removes an event from the tree. The event is looked up by the start time it was inserted with; if it has been
+     * changed since then the whole tree is searched instead.
+     *
+     * @param e The event to remove
+     * @return True iff the event was in the tree
+     */
+    boolean remove(Event e) {
+        int before = size;
+        root = remove(root, e, e.getStart().getTimeInMillis());
+        if (size == before) {
+            Long indexedStart = findStart(root, e);
+            if (indexedStart != null) {
+                root = remove(root, e, indexedStart);
+            }
+        }
+        return size != before;
+    }
+
+    private Node remove(Node root, Event e, long start) {
+        if (root == null) {
+            return null;
+        }
+        if (start < root.start) {
+            root.left = remove(root.left, e, start);
+        } else if (start > root.start) {
+            root.right = remove(root.right, e, start);
+        } else if (root.event == e) {
+            size--;
+            return merge(root.left, root.right);
+        } else {
+            // Equal start times may be on either side after rotations
+            int before = size;
+            root.left = remove(root.left, e, start);
+            if (size == before) {
+                root.right = remove(root.right, e, start);
+            }
+        }
+        update(root);
+        return root;
+    }
+
+    /**
+     * @return The start time e was inserted with, or null if e is not in the tree
+     */
+    private Long findStart(Node root, Event e) {
+        if (root == null) {
+            return null;
+        }
+        if (root.event == e) {
+            return root.start;
+        }
+        Long found = findStart(root.left, e);
+        return found != null ? found : findStart(root.right, e);
+    }
+
+    /**
+     * Joins two treaps where every start in left is no later than every start in right
+     */
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    /**
+     * Recomputes the latest end time of the subtree rooted at node
+     */
+    private void update(Node node) {
+        long max = node.end;
+        if (node.left != null && node.left.maxEnd > max) {
+            max = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd > max) {
+            max = node.right.maxEnd;
+        }
+        node.maxEnd = max;
+    }
+
+    /**
+     * Adds every event which starts within [from, to] to out in order of start time
+     *
+     * @param from The earliest start time in milliseconds
+     * @param to   The latest start time in milliseconds
+     * @param out  The list to add the events to
+     */
+    void startingBetween(long from, long to, ArrayList<Event> out) {
+        startingBetween(root, from, to, out);
+    }
+
+    private void startingBetween(Node node, long from, long to, ArrayList<Event> out) {
+        if (node == null) {
+            return;
+        }
+        if (node.start >= from) {
+            startingBetween(node.left, from, to, out);
+        }
+        if (node.start >= from && node.start <= to) {
+            out.add(node.event);
+        }
+        if (node.start <= to) {
+            startingBetween(node.right, from, to, out);
+        }
+    }
+
+    /**
+     * Adds every event which overlaps [from, to] to out in order of start time
+     *
+     * @param from The start of the interval in milliseconds
+     * @param to   The end of the interval in milliseconds
+     * @param out  The list to add the events to
+     */
+    void overlapping(long from, long to, ArrayList<Event> out) {
+        overlapping(root, from, to, out);
+    }
+
+    private void overlapping(Node node, long from, long to, ArrayList<Event> out) {
+        // Nothing in this subtree ends late enough
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        overlapping(node.left, from, to, out);
+        if (node.start > to) {
+            // Everything to the right starts even later
+            return;
+        }
+        if (node.end >= from) {
+            out.add(node.event);
+        }
+        overlapping(node.right, from, to, out);
+    }
+
+    /**
+     * Adds every event in the tree to out in order of start time
+     *
+     * @param out The list to add the events to
+     */
+    void inOrder(ArrayList<Event> out) {
+        inOrder(root, out);
+    }
+
+    private void inOrder(Node node, ArrayList<Event> out) {
+        if (node == null) {
+            return;
+        }
+        inOrder(node.left, out);
+        out.add(node.event);
+        inOrder(node.right, out);
+    }
+}
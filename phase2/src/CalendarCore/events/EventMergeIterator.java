@@ -0,0 +1,63 @@
+package CalendarCore.events;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Merges several iterators of events which are each in order of start into one iterator in order of start.
+ * Only the next event of each source is held at a time, so sources may be lazy and never ending.
+ */
+public class EventMergeIterator implements Iterator<Event> {
+
+    /**
+     * A source iterator together with the event it will return next
+     */
+    private static class Source {
+        private Iterator<? extends Event> iterator;
+        private Event head;
+
+        private Source(Iterator<? extends Event> iterator) {
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+    }
+
+    /**
+     * The sources which have events left, the one with the earliest next event first
+     */
+    private PriorityQueue<Source> sources = new PriorityQueue<>(
+            Comparator.comparingLong(source -> source.head.getStartMillis()));
+
+    /**
+     * @param iterators The iterators to merge. Each must return its events in order of start.
+     */
+    public EventMergeIterator(List<? extends Iterator<? extends Event>> iterators) {
+        for (Iterator<? extends Event> iterator : iterators) {
+            if (iterator.hasNext()) {
+                sources.add(new Source(iterator));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !sources.isEmpty();
+    }
+
+    @Override
+    public Event next() {
+        Source source = sources.poll();
+        if (source == null) {
+            throw new NoSuchElementException();
+        }
+        Event e = source.head;
+        if (source.iterator.hasNext()) {
+            source.head = source.iterator.next();
+            sources.add(source);
+        }
+        return e;
+    }
+}
@@ -6,31 +6,54 @@ import CalendarCore.dates.DateTime;
 import CalendarCore.exceptions.EventNotInSystemException;
 import CalendarCore.exceptions.InvalidInputException;
 import CalendarCore.memos.MemoSystem;
+import CalendarCore.metrics.Metrics;
+import CalendarCore.metrics.Timer;
+import CalendarCore.search.TextIndex;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
+import CalendarCore.util.LongHashMap;
+import CalendarCore.util.LongHashSet;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
 
+/**
+ * The events of a calendar. Its methods are synchronized on it, so it can be queried off the JavaFX thread while it is
+ * edited on it. The lists it returns are its own, so anyone reading them off that thread must hold its lock.
+ */
 public class EventSystem implements Serializable {
 
     /**
-     * List of all the events created by the User
+     * Fixed so that calendars saved before the event index was added can still be read
      */
-    private ArrayList<Event> listOfEvents;
+    private static final long serialVersionUID = -5532598622980744117L;
 
     /**
-     * List of all past events of the User
+     * How much a word of a title, series name or tag counts for in a text search
      */
-    private ArrayList<Event> pastEvents;
+    private static final int TITLE_WEIGHT = 3;
+    private static final int SERIES_NAME_WEIGHT = 2;
+    private static final int TAG_WEIGHT = 2;
 
     /**
-     * List of all ongoing events of the User
+     * How long the queries for the calendar views and searches take
      */
-    private ArrayList<Event> ongoingEvents;
+    private static final Timer ON_DATE_TIMER = Metrics.timer("EventSystem.getEventsOnDate");
+    private static final Timer BY_DAY_TIMER = Metrics.timer("EventSystem.getEventsByDay");
+    private static final Timer BETWEEN_TIMER = Metrics.timer("EventSystem.getEventsBetween");
+    private static final Timer BY_TAG_TIMER = Metrics.timer("EventSystem.getEventsByTag");
+    private static final Timer SEARCH_TEXT_TIMER = Metrics.timer("EventSystem.searchText");
 
     /**
-     * List of all upcoming events of the User
+     * List of all the events created by the User
      */
-    private ArrayList<Event> upcomingEvents;
+    private ArrayList<Event> listOfEvents;
 
     /**
      * List of generators
@@ -48,6 +71,73 @@ public class EventSystem implements Serializable {
 
     private ArrayList<StatutoryEventGenerator> listOfStatutoryEventGenerators;
 
+    /**
+     * Interval tree over the start and end times of listOfEvents. It is rebuilt from listOfEvents after loading.
+     */
+    private transient EventIntervalTree eventIndex;
+
+    /**
+     * The single events, series generators and statutory event generators by id. When ids collide the one earliest
+     * in its list is kept, the one a scan of the list would find. They are rebuilt from the lists after loading.
+     */
+    private transient LongHashMap<Event> eventsById;
+    private transient LongHashMap<SeriesGenerator> generatorsById;
+    private transient LongHashMap<StatutoryEventGenerator> statutoryById;
+
+    /**
+     * The single events and series with each tag. It is built from the lists when it is first needed, and kept up to
+     * date by the changes made through this event system, so tags must be changed through setTags.
+     */
+    private transient TagIndex tagIndex;
+
+    /**
+     * The words of the titles, series names and tags of the single events and series templates. It is built from the
+     * lists when it is first needed, and kept up to date by the changes made through this event system, so titles
+     * and tags must be changed through setTitle, setTags or editSingleEvent.
+     */
+    private transient TextIndex<Event> textIndex;
+
+    /**
+     * True iff an id was added while another event or generator with it was already in the id maps
+     */
+    private transient boolean duplicateIds;
+
+    /**
+     * The past, ongoing and upcoming events, advanced as the CalendarClock moves forward
+     */
+    private transient EventClassifier classifier;
+
+    /**
+     * The generator version the classifier was built for. See generatorVersion()
+     */
+    private transient long classifiedVersion;
+
+    /**
+     * The time in milliseconds the classifier was built at, which centres its window of statutory events
+     */
+    private transient long classifiedAt;
+
+    /**
+     * Counts the series and statutory events added, edited or deleted. A deleted series adds its own count as well, so that
+     * generatorVersion never goes back to an earlier value.
+     */
+    private transient int modCount;
+
+    /**
+     * Counts the single events added, edited or deleted
+     */
+    private transient int eventModCount;
+
+    /**
+     * The ids of the single events, series and statutory events added, edited or deleted since takeChangedIds was
+     * last called, which the journal saves
+     */
+    private transient LongHashSet changedIds;
+
+    /**
+     * Changes read from the journal which have not been applied yet. See readChanges
+     */
+    private transient JournaledEvents journaled;
 
     /**
      * Constructor
@@ -56,33 +146,35 @@ public class EventSystem implements Serializable {
      */
     public EventSystem(AlertSystem alertSystem) {
         listOfEvents = new ArrayList<>();
-        pastEvents = new ArrayList<>();
-        ongoingEvents = new ArrayList<>();
-        upcomingEvents = new ArrayList<>();
         listOfGenerators = new ArrayList<>();
         listOfStatutoryEventGenerators = new ArrayList<>();
         this.alertSystem = alertSystem;
     }
 
-    public ArrayList<Event> getPastEvents() {
-        update();
-        return pastEvents;
+    public synchronized ArrayList<Event> getPastEvents() {
+        return update().getPast();
     }
 
-    public ArrayList<Event> getOngoingEvents() {
-        update();
-        return ongoingEvents;
+    public synchronized ArrayList<Event> getOngoingEvents() {
+        return update().getOngoing();
     }
 
-    public ArrayList<Event> getUpcomingEvents() {
-        update();
-        return upcomingEvents;
+    public synchronized ArrayList<Event> getUpcomingEvents() {
+        return update().getUpcoming();
     }
 
-    public ArrayList<SeriesGenerator> getListOfGenerators() {
+    public synchronized ArrayList<SeriesGenerator> getListOfGenerators() {
         return listOfGenerators;
     }
 
+    /**
+     * @return A number which grows whenever an event is added, deleted or edited through this event system or one of
+     * its series, so anything drawn from its events only needs drawing again once it changes
+     */
+    public synchronized long getVersion() {
+        return eventModCount + generatorVersion();
+    }
+
 
     /**
      * Getter for AlertSystem
@@ -101,40 +193,52 @@ public class EventSystem implements Serializable {
      * @param end_date   End Datetime for the Event
      * @return The event's id
      */
-    public long createSingleEvent(String title, DateTime start_date, DateTime end_date) {
+    public synchronized long createSingleEvent(String title, DateTime start_date, DateTime end_date) {
+        return createSingleEvent(title, start_date, end_date, new ArrayList<>());
+    }
+
+    /**
+     * A new Event (Single) with tags created by the User. The event is added with its tags, so it is indexed once.
+     *
+     * @param title      Title given to the Event
+     * @param start_date Start Datetime for the Event
+     * @param end_date   End Datetime for the Event
+     * @param tags       Tags of the Event
+     * @return The event's id
+     */
+    public synchronized long createSingleEvent(String title, DateTime start_date, DateTime end_date,
+                                               ArrayList<String> tags) {
         Event e = new Event(title, start_date, end_date);
-        listOfEvents.add(e);
+        e.setTags(tags);
+        addSingleEvent(e);
         return e.id;
     }
 
 
-    public Event getEventByID(long id) {
-        for (Event e : listOfEvents) {
-            if (e.id == id) {
-                return e;
-            }
+    public synchronized Event getEventByID(long id) {
+        buildIdIndex();
+        Event e = eventsById.get(id);
+        if (e != null) {
+            return e;
         }
-        for(SeriesGenerator sg:listOfGenerators){
-            if(sg.getId() == id){
-                return sg.getTemplate();
-            }
+        SeriesGenerator sg = generatorsById.get(id);
+        if (sg != null) {
+            return sg.getTemplate();
         }
-
-        for(StatutoryEventGenerator seg:listOfStatutoryEventGenerators){
-            if(seg.getId() == id){
-                return seg.toEvent(new DateTime());
-            }
+        StatutoryEventGenerator seg = statutoryById.get(id);
+        if (seg != null) {
+            return seg.toEvent(new DateTime());
         }
         return new Event();
     }
 
-    public SeriesGenerator getGeneratorByID(long id) throws InvalidInputException {
-        for (SeriesGenerator sg : getListOfGenerators()) {
-            if (sg.getId() == id) {
-                return sg;
-            }
+    public synchronized SeriesGenerator getGeneratorByID(long id) throws InvalidInputException {
+        buildIdIndex();
+        SeriesGenerator sg = generatorsById.get(id);
+        if (sg == null) {
+            throw new InvalidInputException();
         }
-        throw new InvalidInputException();
+        return sg;
     }
 
 
@@ -148,11 +252,11 @@ public class EventSystem implements Serializable {
      * @param f          Frequency of Event
      * @param count      Number of events
      */
-    public long createSeriesEvent(String seriesName, String title, DateTime startTime, DateTime endTime, SeriesGenerator.FREQUENCY[] f, int count) {
+    public synchronized long createSeriesEvent(String seriesName, String title, DateTime startTime, DateTime endTime, SeriesGenerator.FREQUENCY[] f, int count) {
         SeriesEvent template = new SeriesEvent(seriesName, title, startTime, endTime, null);
         // We'll have a way to make Alerts for the SeriesEvent using template
         SeriesGenerator sg = new SeriesGenerator(startTime, f, template, count);
-        listOfGenerators.add(sg);
+        addSeriesEvent(sg);
         return sg.getId();
     }
 
@@ -166,10 +270,10 @@ public class EventSystem implements Serializable {
      * @param f          Frequency of Event
      * @param endDate    End date for Event to end
      */
-    public long createSeriesEvent(String seriesName, String title, DateTime startTime, DateTime endTime, SeriesGenerator.FREQUENCY[] f, DateTime endDate) {
+    public synchronized long createSeriesEvent(String seriesName, String title, DateTime startTime, DateTime endTime, SeriesGenerator.FREQUENCY[] f, DateTime endDate) {
         SeriesEvent template = new SeriesEvent(seriesName, title, startTime, endTime, null);
         SeriesGenerator sg = new SeriesGenerator(startTime, f, template, endDate);
-        listOfGenerators.add(sg);
+        addSeriesEvent(sg);
         return sg.getId();
     }
 
@@ -180,7 +284,7 @@ public class EventSystem implements Serializable {
      * @param month the month of the year of the event
      * @return the id of the created event
      */
-    public long createStatutoryEvent(String name, int day, int week, int month) {
+    public synchronized long createStatutoryEvent(String name, int day, int week, int month) {
         StatutoryEventGenerator statutoryEventGenerator = new StatutoryEventGenerator(name, day, week, month);
         addStatutoryEvent(statutoryEventGenerator);
         return statutoryEventGenerator.getId();
@@ -191,84 +295,280 @@ public class EventSystem implements Serializable {
      *
      * @return ArrayList<Event>
      */
-    public ArrayList<Event> getListOfEvents() {
+    public synchronized ArrayList<Event> getListOfEvents() {
         return listOfEvents;
     }
 
     /**
-     * updates the past, ongoing and upcoming event lists
+     * @return The interval tree over listOfEvents, building it if it has not been built yet
+     */
+    private EventIntervalTree getEventIndex() {
+        if (eventIndex == null) {
+            eventIndex = new EventIntervalTree();
+            for (Event e : listOfEvents) {
+                eventIndex.insert(e);
+            }
+        }
+        return eventIndex;
+    }
+
+    /**
+     * Builds the id maps from the lists if they have not been built yet
+     */
+    private void buildIdIndex() {
+        if (eventsById != null) {
+            return;
+        }
+        eventsById = new LongHashMap<>(listOfEvents.size());
+        generatorsById = new LongHashMap<>(listOfGenerators.size());
+        statutoryById = new LongHashMap<>(listOfStatutoryEventGenerators.size());
+        for (Event e : listOfEvents) {
+            indexId(eventsById, e.getId(), e);
+        }
+        for (SeriesGenerator g : listOfGenerators) {
+            indexId(generatorsById, g.getId(), g);
+        }
+        for (StatutoryEventGenerator seg : listOfStatutoryEventGenerators) {
+            indexId(statutoryById, seg.getId(), seg);
+        }
+    }
+
+    /**
+     * Adds value to map under id unless id is already taken
+     */
+    private <V> void indexId(LongHashMap<V> map, long id, V value) {
+        if (map.containsKey(id)) {
+            duplicateIds = true;
+        } else {
+            map.put(id, value);
+        }
+    }
+
+    /**
+     * Removes id from map. If other values shared the id, the first of them left in list takes its place.
+     */
+    private <V> void unindexId(LongHashMap<V> map, long id, ArrayList<V> list, ToLongFunction<V> getId) {
+        map.remove(id);
+        if (duplicateIds) {
+            for (V value : list) {
+                if (getId.applyAsLong(value) == id) {
+                    map.put(id, value);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The tag index, building it from the lists if it has not been built yet
+     */
+    private TagIndex getTagIndex() {
+        if (tagIndex == null) {
+            tagIndex = new TagIndex();
+            for (Event e : listOfEvents) {
+                tagIndex.add(e);
+            }
+            for (SeriesGenerator g : listOfGenerators) {
+                tagIndex.add(g);
+            }
+        }
+        return tagIndex;
+    }
+
+    /**
+     * @return The text index, building it from the lists if it has not been built yet
+     */
+    private TextIndex<Event> getTextIndex() {
+        if (textIndex == null) {
+            textIndex = new TextIndex<>();
+            for (Event e : listOfEvents) {
+                addText(e);
+            }
+            for (SeriesGenerator g : listOfGenerators) {
+                addText(g.getTemplate());
+            }
+        }
+        return textIndex;
+    }
+
+    /**
+     * Adds the title, series name and tags of a single event or series template to the text index
+     */
+    private void addText(Event e) {
+        textIndex.add(e, e.getTitle(), TITLE_WEIGHT);
+        if (e instanceof SeriesEvent) {
+            textIndex.add(e, ((SeriesEvent) e).getSeriesName(), SERIES_NAME_WEIGHT);
+        }
+        for (String tag : e.getTags()) {
+            textIndex.add(e, tag, TAG_WEIGHT);
+        }
+    }
+
+    /**
+     * Adds a single event to the tag and text indexes, if they are built.
+     */
+    private void indexText(Event e) {
+        if (tagIndex != null) {
+            tagIndex.add(e);
+        }
+        if (textIndex != null) {
+            addText(e);
+        }
+    }
+
+    /**
+     * Removes a single event from the tag and text indexes, if they are built.
+     */
+    private void unindexText(Event e) {
+        if (tagIndex != null) {
+            tagIndex.remove(e);
+        }
+        if (textIndex != null) {
+            textIndex.remove(e);
+        }
+    }
+
+    /**
+     * Adds a series to the tag and text indexes, if they are built.
+     */
+    private void indexText(SeriesGenerator g) {
+        if (tagIndex != null) {
+            tagIndex.add(g);
+        }
+        if (textIndex != null) {
+            addText(g.getTemplate());
+        }
+    }
+
+    /**
+     * Removes a series from the tag and text indexes, if they are built.
+     */
+    private void unindexText(SeriesGenerator g) {
+        if (tagIndex != null) {
+            tagIndex.remove(g);
+        }
+        if (textIndex != null) {
+            textIndex.remove(g.getTemplate());
+        }
+    }
+
+    /**
+     * @return A number which changes whenever a series or statutory event is added, deleted or edited
      */
-    private void update() {
+    private long generatorVersion() {
+        long version = modCount;
+        for (SeriesGenerator g : listOfGenerators) {
+            version += g.getModCount();
+        }
+        return version;
+    }
+
+    /**
+     * Brings the past, ongoing and upcoming events up to the current time. Single events only move between groups
+     * as the clock passes their start or end; everything is reclassified only if a series changed, the clock went
+     * backwards or the one year window of generated series and statutory events needs to move.
+     *
+     * @return The up to date classifier
+     */
+    private EventClassifier update() {
         DateTime today = new CalendarClock().getTime();
-        pastEvents.clear();
-        ongoingEvents.clear();
-        upcomingEvents.clear();
+        long now = today.getTimeInMillis();
+
+        if (classifier != null && classifiedVersion == generatorVersion()
+                && today.offsetMonths(-1).getTimeInMillis() <= classifiedAt && classifier.advanceTo(now)) {
+            return classifier;
+        }
+
+        classifier = new EventClassifier(now);
+        classifiedVersion = generatorVersion();
+        classifiedAt = now;
         for (Event event : listOfEvents) {
-            if (today.compareTo(event.getEnd()) > 0)
-                pastEvents.add(event);
-            else if (today.compareTo(event.getEnd()) <= 0 && today.compareTo(event.getStart()) >= 0)
-                ongoingEvents.add(event);
-            else if (today.compareTo(event.getStart()) < 0)
-                upcomingEvents.add(event);
-            else {
-                System.out.println("We encountered an unexpected error.");
-            }
+            classifier.add(event);
         }
+
+        // Series are only generated a year ahead. getUpcomingIterator reaches further without generating them all.
+        DateTime beginning = new DateTime();
+        beginning.setTimeInMillis(0);
+        DateTime past = today.offsetMonths(-12);
+        DateTime future = today.offsetMonths(12);
         for (SeriesGenerator g : listOfGenerators) {
-            DateTime dt = new DateTime();
-            dt.setTimeInMillis(0);
-            pastEvents.addAll(g.generate(dt, today));
-            ongoingEvents.addAll(g.generate(today, today));
-            dt = new DateTime();
-            upcomingEvents.addAll(g.generate(today, dt));
+            classifier.addAll(g.generate(beginning, future));
         }
 
         // Generate Statutory events +- 1 year
         for (StatutoryEventGenerator seg : listOfStatutoryEventGenerators) {
-            DateTime past = today.clone().offsetMonths(-12);
-            pastEvents.addAll(seg.generate(past, today));
+            classifier.addAll(seg.generate(past, future));
+        }
+        return classifier;
+    }
 
-            if (seg.isOnDate(today)) {
-                ongoingEvents.add(seg.toEvent(today));
-            }
 
-            DateTime future = today.clone().offsetMonths(12);
-            upcomingEvents.addAll(seg.generate(today, future));
+    /**
+     * Lazily merges the single, series and statutory events starting after a given time in order of start.
+     * Series and statutory occurrences are only generated as the iterator reaches them, so it can be used to page
+     * through the future without generating every occurrence of a long series.
+     *
+     * @param from The time after which events must start
+     * @return An iterator over every event of this event system starting after from, in order of start
+     */
+    public synchronized Iterator<Event> getUpcomingIterator(DateTime from) {
+        ArrayList<Iterator<? extends Event>> sources = new ArrayList<>();
+
+        ArrayList<Event> singles = new ArrayList<>();
+        getEventIndex().startingBetween(from.getTimeInMillis() + 1, Long.MAX_VALUE, singles);
+        sources.add(singles.iterator());
+
+        for (SeriesGenerator g : listOfGenerators) {
+            sources.add(g.occurrencesAfter(from));
         }
+        for (StatutoryEventGenerator seg : listOfStatutoryEventGenerators) {
+            sources.add(seg.occurrencesAfter(from));
+        }
+        return new EventMergeIterator(sources);
     }
 
-
     /**
      * Delete an Event or series event in this calendar system
      *
      * @param id the id of the event to be deleted
      */
-    public void deleteEvent(long id, MemoSystem memoSystem) throws EventNotInSystemException {
+    public synchronized void deleteEvent(long id, MemoSystem memoSystem) throws EventNotInSystemException {
+
+        buildIdIndex();
 
         //checking if ids of single events match.
-        for (int i = 0; i < listOfEvents.size(); i++) {
-            if (listOfEvents.get(i).getId() == id) {
-                listOfEvents.remove(i);
-                break;
+        Event removed = eventsById.get(id);
+        if (removed != null) {
+            listOfEvents.remove(removed);
+            unindexText(removed);
+            alertSystem.eventRemoved(removed);
+            unindexId(eventsById, id, listOfEvents, Event::getId);
+            getEventIndex().remove(removed);
+            if (classifier != null) {
+                classifier.remove(removed);
             }
+            eventModCount++;
         }
 
         //checking if ids of series events match
-        for (int i = 0; i < listOfGenerators.size(); i++) {
-            if (listOfGenerators.get(i).getId() == id) {
-                listOfGenerators.remove(i);
-                break;
-            }
+        SeriesGenerator generator = generatorsById.get(id);
+        if (generator != null) {
+            listOfGenerators.remove(generator);
+            unindexText(generator);
+            unindexId(generatorsById, id, listOfGenerators, SeriesGenerator::getId);
+            modCount += generator.getModCount() + 1;
         }
 
         //checking if ids of statutory events match
-        for (int i = 0; i < listOfStatutoryEventGenerators.size(); i++) {
-            if (listOfStatutoryEventGenerators.get(i).getId() == id) {
-                listOfStatutoryEventGenerators.remove(i);
-                break;
-            }
+        StatutoryEventGenerator seg = statutoryById.get(id);
+        if (seg != null) {
+            listOfStatutoryEventGenerators.remove(seg);
+            unindexId(statutoryById, id, listOfStatutoryEventGenerators, StatutoryEventGenerator::getId);
+            modCount++;
         }
 
+        changed(id);
+
         //Removes any possibly associated memos
         memoSystem.removeEventInMemo(id);
     }
@@ -279,38 +579,392 @@ public class EventSystem implements Serializable {
      * @param date the date you want to check. must be at 12:00:am
      * @return arr, the list of events.
      */
-    public ArrayList<Event> getEventsOnDate(DateTime date) {
-        // Sets start time to 1:00 AM of on the date provided by date
-        DateTime startDate = date.getStartOfDay();
+    public synchronized ArrayList<Event> getEventsOnDate(DateTime date) {
+        long startNanos = ON_DATE_TIMER.start();
+        try {
+            // Sets start time to 1:00 AM of on the date provided by date
+            DateTime startDate = date.getStartOfDay();
 
-        ArrayList<Event> arr = new ArrayList<>();
-        for (Event e : listOfEvents) {
-            if (e.isOnDate(startDate)) {
-                sortedInsert(arr, e);
+            // Single events come out of the index already sorted by start, the same window as Event.isOnDate
+            ArrayList<Event> arr = new ArrayList<>();
+            long dayStart = startDate.getTimeInMillis();
+            getEventIndex().startingBetween(dayStart, dayStart + 1000 * 60 * 60 * 24, arr);
+
+            for (SeriesGenerator generator : listOfGenerators) {
+                for (SeriesEvent event : generator.generate(startDate, startDate)) {
+                    sortedInsert(arr, event);
+                }
             }
+            for (StatutoryEventGenerator seg : listOfStatutoryEventGenerators) {
+                if (seg.isOnDate(date)) {
+                    sortedInsert(arr, seg.toEvent(date));
+                }
+            }
+            return arr;
+        } finally {
+            ON_DATE_TIMER.stop(startNanos);
         }
+    }
 
-        for (SeriesGenerator generator : listOfGenerators) {
-            for (SeriesEvent event : generator.generate(startDate, startDate)) {
-                sortedInsert(arr, event);
+
+    /**
+     * Returns the events on each of a run of days at once, for drawing a week or month. Single events are taken from
+     * the index in one query and each series is generated once for the whole run, rather than once per day.
+     *
+     * @param start the first day
+     * @param end   the last day
+     * @return one list for each day from start up to and including the day of end, in order. The list for start
+     * offset by i days holds the same events in the same order as getEventsOnDate would for it.
+     */
+    public synchronized ArrayList<ArrayList<Event>> getEventsByDay(DateTime start, DateTime end) {
+        long startNanos = BY_DAY_TIMER.start();
+        try {
+            ArrayList<DateTime> days = new ArrayList<>();
+            long lastDay = end.getStartOfDay().getTimeInMillis();
+            for (DateTime date = start; date.getStartOfDay().getTimeInMillis() <= lastDay; date = date.nextDate()) {
+                days.add(date);
             }
-        }
-        for (StatutoryEventGenerator seg : listOfStatutoryEventGenerators) {
-            if (seg.isOnDate(date)) {
-                sortedInsert(arr, seg.toEvent(date));
+
+            ArrayList<ArrayList<Event>> byDay = new ArrayList<>();
+            if (days.isEmpty()) {
+                return byDay;
+            }
+            int n = days.size();
+            long[] dayStarts = new long[n];
+            HashMap<Long, Integer> dayIndex = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                dayStarts[i] = days.get(i).getStartOfDay().getTimeInMillis();
+                dayIndex.put(dayStarts[i], i);
+                byDay.add(new ArrayList<>());
             }
+
+            // Each day takes the single events starting in [day start, day start + 1 day], as getEventsOnDate does
+            long dayLength = 1000 * 60 * 60 * 24;
+            ArrayList<Event> singles = new ArrayList<>();
+            getEventIndex().startingBetween(dayStarts[0], dayStarts[n - 1] + dayLength, singles);
+            int first = 0;
+            for (Event e : singles) {
+                long eventStart = e.getStartMillis();
+                while (dayStarts[first] + dayLength < eventStart) {
+                    first++;
+                }
+                for (int i = first; i < n && dayStarts[i] <= eventStart; i++) {
+                    byDay.get(i).add(e);
+                }
+            }
+
+            DateTime firstDay = days.get(0).getStartOfDay();
+            DateTime lastDayStart = days.get(n - 1).getStartOfDay();
+            for (SeriesGenerator generator : listOfGenerators) {
+                for (SeriesEvent event : generator.generate(firstDay, lastDayStart)) {
+                    Integer i = dayIndex.get(event.getStart().getStartOfDay().getTimeInMillis());
+                    if (i != null) {
+                        sortedInsert(byDay.get(i), event);
+                    }
+                }
+            }
+            for (StatutoryEventGenerator seg : listOfStatutoryEventGenerators) {
+                for (int i = 0; i < n; i++) {
+                    if (seg.isOnDate(days.get(i))) {
+                        sortedInsert(byDay.get(i), seg.toEvent(days.get(i)));
+                    }
+                }
+            }
+            return byDay;
+        } finally {
+            BY_DAY_TIMER.stop(startNanos);
         }
-        return arr;
     }
 
-
     /**
      * Add a single event to the event system
      *
      * @param e the single event you need to add to the event system
      */
-    public void addSingleEvent(Event e) {
+    public synchronized void addSingleEvent(Event e) {
+        buildIdIndex();
+        indexId(eventsById, e.getId(), e);
+        getEventIndex().insert(e);
         listOfEvents.add(e);
+        indexText(e);
+        alertSystem.eventAdded(e);
+        if (classifier != null) {
+            classifier.add(e);
+        }
+        eventModCount++;
+        changed(e.getId());
+    }
+
+    /**
+     * Changes the title and times of a single event in this event system.
+     * Start and end must be changed through here rather than on the event so that the event index stays correct.
+     * An event shared with other event systems is changed with the static editSingleEvent instead.
+     *
+     * @param e     the single event to edit
+     * @param title the new title
+     * @param start the new start date and time
+     * @param end   the new end date and time
+     * @return true iff e is a single event in this event system and was edited
+     */
+    public synchronized boolean editSingleEvent(Event e, String title, DateTime start, DateTime end) {
+        if (!holdsSingle(e)) {
+            return false;
+        }
+        editSingleEvent(List.of(this), e, title, start, end);
+        return true;
+    }
+
+    /**
+     * Changes the title and times of a single event in every event system holding it, keeping the indexes of each
+     * correct
+     *
+     * @param holders the event systems holding e. See Users.findEventSystems
+     * @param e       the single event to edit
+     * @param title   the new title
+     * @param start   the new start date and time
+     * @param end     the new end date and time
+     */
+    public static void editSingleEvent(List<EventSystem> holders, Event e, String title, DateTime start,
+                                       DateTime end) {
+        edit(holders, e, () -> {
+            e.setTitle(title);
+            e.setStart(start);
+            e.setEnd(end);
+        });
+    }
+
+    /**
+     * Changes the title, times and tags of a single event in every event system holding it as one edit, so background
+     * queries never see only some of them changed and the indexes of each are updated once
+     *
+     * @param holders the event systems holding e. See Users.findEventSystems
+     * @param e       the single event to edit
+     * @param title   the new title
+     * @param start   the new start date and time
+     * @param end     the new end date and time
+     * @param tags    the new tags
+     */
+    public static void editSingleEvent(List<EventSystem> holders, Event e, String title, DateTime start,
+                                       DateTime end, ArrayList<String> tags) {
+        edit(holders, e, () -> {
+            e.setTitle(title);
+            e.setStart(start);
+            e.setEnd(end);
+            e.setTags(tags);
+        });
+    }
+
+    /**
+     * Replaces the tags of a single event or series template of this event system, and updates the tag and text
+     * indexes to match rather than leaving them to be rebuilt
+     *
+     * @param e    the single event, or the template of the series
+     * @param tags the new tags
+     * @return true iff e is a single event or series template in this event system. Its tags are set either way.
+     */
+    public synchronized boolean setTags(Event e, ArrayList<String> tags) {
+        setTags(List.of(this), e, tags);
+        return holds(e);
+    }
+
+    /**
+     * Replaces the tags of a single event or series template in every event system holding it
+     *
+     * @param holders the event systems holding e. See Users.findEventSystems
+     * @param e       the single event, or the template of the series
+     * @param tags    the new tags
+     */
+    public static void setTags(List<EventSystem> holders, Event e, ArrayList<String> tags) {
+        edit(holders, e, () -> e.setTags(tags));
+    }
+
+    /**
+     * Changes the title of a series template of this event system, and updates the text index to match rather than
+     * leaving it to be rebuilt. Single events are edited with editSingleEvent.
+     *
+     * @param e     the template of the series, or a single event
+     * @param title the new title
+     * @return true iff e is a single event or series template in this event system. Its title is set either way.
+     */
+    public synchronized boolean setTitle(Event e, String title) {
+        setTitle(List.of(this), e, title);
+        return holds(e);
+    }
+
+    /**
+     * Changes the title of a single event or series template in every event system holding it
+     *
+     * @param holders the event systems holding e. See Users.findEventSystems
+     * @param e       the template of the series, or a single event
+     * @param title   the new title
+     */
+    public static void setTitle(List<EventSystem> holders, Event e, String title) {
+        edit(holders, e, () -> e.setTitle(title));
+    }
+
+    /**
+     * Changes a series in every event system holding it, ending it after a number of occurrences. The event systems
+     * are locked for the whole change, so no query sees the series half changed.
+     *
+     * @param holders the event systems holding the series. See Users.findEventSystems
+     * @param g       the series
+     * @param title   the new title
+     * @param start   the new start date and time of the template
+     * @param end     the new end date and time of the template
+     * @param f       the new frequency
+     * @param tags    the new tags
+     * @param count   the number of occurrences
+     */
+    public static void editSeries(List<EventSystem> holders, SeriesGenerator g, String title, DateTime start,
+                                  DateTime end, SeriesGenerator.FREQUENCY[] f, ArrayList<String> tags, int count) {
+        edit(holders, g.getTemplate(), () -> {
+            editSeries(g, title, start, end, f, tags);
+            g.setEndCount(count);
+        });
+    }
+
+    /**
+     * Changes a series in every event system holding it, ending it at a date. The event systems are locked for the
+     * whole change, so no query sees the series half changed.
+     *
+     * @param holders the event systems holding the series. See Users.findEventSystems
+     * @param g       the series
+     * @param title   the new title
+     * @param start   the new start date and time of the template
+     * @param end     the new end date and time of the template
+     * @param f       the new frequency
+     * @param tags    the new tags
+     * @param endDate the date the series ends
+     */
+    public static void editSeries(List<EventSystem> holders, SeriesGenerator g, String title, DateTime start,
+                                  DateTime end, SeriesGenerator.FREQUENCY[] f, ArrayList<String> tags,
+                                  DateTime endDate) {
+        edit(holders, g.getTemplate(), () -> {
+            editSeries(g, title, start, end, f, tags);
+            g.setEndDate(endDate);
+        });
+    }
+
+    private static void editSeries(SeriesGenerator g, String title, DateTime start, DateTime end,
+                                   SeriesGenerator.FREQUENCY[] f, ArrayList<String> tags) {
+        g.getTemplate().setTitle(title);
+        g.setTimes(start, end);
+        g.setFrequency(f);
+        g.getTemplate().setTags(tags);
+    }
+
+    /**
+     * Changes an event which may be held by several event systems, such as one shared between calendars. Each of
+     * them is locked and takes the event out of its indexes before the change and puts it back after, so no query
+     * sees it half changed and the indexes of every one of them stay correct.
+     * <p>
+     * The locks are taken in the order of holders. Only the JavaFX thread changes events and everything else holds
+     * one event system's lock at a time, so they cannot deadlock.
+     *
+     * @param holders the event systems holding e. Any which do not are left alone.
+     * @param e       a single event or series template
+     * @param edit    the change
+     */
+    private static void edit(List<EventSystem> holders, Event e, Runnable edit) {
+        edit(holders, 0, e, edit);
+    }
+
+    private static void edit(List<EventSystem> holders, int next, Event e, Runnable edit) {
+        if (next == holders.size()) {
+            edit.run();
+            return;
+        }
+        EventSystem es = holders.get(next);
+        synchronized (es) {
+            es.unindex(e);
+            try {
+                edit(holders, next + 1, e, edit);
+            } finally {
+                es.reindex(e);
+            }
+        }
+    }
+
+    /**
+     * @param e an event
+     * @return true iff e itself is a single event or series template of this event system
+     */
+    public synchronized boolean holds(Event e) {
+        return holdsSingle(e) || generatorOf(e) != null;
+    }
+
+    /**
+     * @return true iff e itself is a single event of this event system, even if another with its id hides it
+     */
+    private boolean holdsSingle(Event e) {
+        buildIdIndex();
+        if (eventsById.get(e.getId()) == e) {
+            return true;
+        }
+        if (duplicateIds) {
+            for (Event single : listOfEvents) {
+                if (single == e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the series of this event system whose template e is, or null if there is none
+     */
+    private SeriesGenerator generatorOf(Event e) {
+        buildIdIndex();
+        SeriesGenerator generator = generatorsById.get(e.getId());
+        if (generator != null && generator.getTemplate() == e) {
+            return generator;
+        }
+        if (duplicateIds) {
+            for (SeriesGenerator g : listOfGenerators) {
+                if (g.getTemplate() == e) {
+                    return g;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Takes a single event or series template out of the indexes before it is changed. See edit
+     */
+    private void unindex(Event e) {
+        if (holdsSingle(e)) {
+            getEventIndex().remove(e);
+            if (classifier != null) {
+                classifier.remove(e);
+            }
+            unindexText(e);
+        }
+        SeriesGenerator generator = generatorOf(e);
+        if (generator != null) {
+            unindexText(generator);
+        }
+    }
+
+    /**
+     * Puts a single event or series template back into the indexes after it was changed. See edit
+     */
+    private void reindex(Event e) {
+        if (holdsSingle(e)) {
+            getEventIndex().insert(e);
+            if (classifier != null) {
+                classifier.add(e);
+            }
+            indexText(e);
+            eventModCount++;
+        }
+        SeriesGenerator generator = generatorOf(e);
+        if (generator != null) {
+            indexText(generator);
+            modCount++;
+        }
+        changed(e.getId());
     }
 
     /**
@@ -318,8 +972,13 @@ public class EventSystem implements Serializable {
      *
      * @param g the SeriesGenerator for the relevant SeriesEvent
      */
-    public void addSeriesEvent(SeriesGenerator g) {
+    public synchronized void addSeriesEvent(SeriesGenerator g) {
+        buildIdIndex();
+        indexId(generatorsById, g.getId(), g);
         listOfGenerators.add(g);
+        indexText(g);
+        modCount++;
+        changed(g.getId());
     }
 
     /**
@@ -327,8 +986,32 @@ public class EventSystem implements Serializable {
      *
      * @param seg the generator of the statutory event you want to add
      */
-    public void addStatutoryEvent(StatutoryEventGenerator seg) {
+    public synchronized void addStatutoryEvent(StatutoryEventGenerator seg) {
+        buildIdIndex();
+        indexId(statutoryById, seg.getId(), seg);
         listOfStatutoryEventGenerators.add(seg);
+        modCount++;
+        changed(seg.getId());
+    }
+
+    private void changed(long id) {
+        if (changedIds == null) {
+            changedIds = new LongHashSet();
+        }
+        changedIds.add(id);
+    }
+
+    /**
+     * @return the ids of the single events, series and statutory events added, edited or deleted since this was last
+     * called, for the journal
+     */
+    public synchronized long[] takeChangedIds() {
+        if (changedIds == null) {
+            return new long[0];
+        }
+        long[] ids = changedIds.toArray();
+        changedIds = null;
+        return ids;
     }
 
     private void sortedInsert(ArrayList<Event> events, Event e) {
@@ -340,7 +1023,7 @@ public class EventSystem implements Serializable {
         }
 
         if (!added) {
-            while ((index < events.size()) && (events.get(index).getStart().getTimeInMillis() <= e.getStart().getTimeInMillis())) {
+            while ((index < events.size()) && (events.get(index).getStartMillis() <= e.getStartMillis())) {
                 index++;
             }
 
@@ -357,20 +1040,205 @@ public class EventSystem implements Serializable {
      * @param end   the end datetime for generatable events
      * @return ArrayList containing all the events between start and end
      */
-    public ArrayList<Event> getEventsBetween(DateTime start, DateTime end) {
-        ArrayList<Event> events = new ArrayList<>();
+    public synchronized ArrayList<Event> getEventsBetween(DateTime start, DateTime end) {
+        long startNanos = BETWEEN_TIMER.start();
+        try {
+            ArrayList<Event> events = new ArrayList<>();
 
-        for (SeriesGenerator g : listOfGenerators) {
-            events.addAll(g.generate(start, end));
+            for (SeriesGenerator g : listOfGenerators) {
+                events.addAll(g.generate(start, end));
+            }
+
+            for (StatutoryEventGenerator seg : listOfStatutoryEventGenerators) {
+                events.addAll(seg.generate(start, end));
+            }
+
+            events.addAll(getListOfEvents());
+
+            return events;
+        } finally {
+            BETWEEN_TIMER.stop(startNanos);
         }
+    }
 
-        for (StatutoryEventGenerator seg : listOfStatutoryEventGenerators) {
-            events.addAll(seg.generate(start, end));
+    /**
+     * Gets the single events with a tag and the events between start and end of the series with it. Only the series
+     * with the tag are generated, rather than every series.
+     *
+     * @param tag   the tag
+     * @param start the start datetime for series events
+     * @param end   the end datetime for series events
+     * @return the events with the tag, series events first and then single events, like getEventsBetween
+     */
+    public synchronized ArrayList<Event> getEventsByTag(String tag, DateTime start, DateTime end) {
+        long startNanos = BY_TAG_TIMER.start();
+        try {
+            TagIndex index = getTagIndex();
+            ArrayList<Event> events = new ArrayList<>();
+            for (SeriesGenerator g : index.getSeries(tag)) {
+                events.addAll(g.generate(start, end));
+            }
+            // Statutory events never have tags
+            events.addAll(index.getEvents(tag));
+            return events;
+        } finally {
+            BY_TAG_TIMER.stop(startNanos);
         }
+    }
 
-        events.addAll(getListOfEvents());
+    /**
+     * Finds the single events and series whose titles, series names or tags hold every word of a query, or words
+     * starting with them. A series is found as its template, as getEventByID returns it.
+     *
+     * @param query the words to search for
+     * @return the score of each event found, higher for better matches
+     */
+    public synchronized HashMap<Event, Double> searchText(String query) {
+        long startNanos = SEARCH_TEXT_TIMER.start();
+        try {
+            return getTextIndex().search(query);
+        } finally {
+            SEARCH_TEXT_TIMER.stop(startNanos);
+        }
+    }
 
-        return events;
+    /**
+     * Writes an event system in the binary save format
+     *
+     * @param out The writer
+     * @param es  The event system
+     */
+    public static void write(BinaryWriter out, EventSystem es) {
+        AlertSystem.write(out, es.alertSystem);
+        out.writeVarInt(es.listOfEvents.size());
+        for (Event e : es.listOfEvents) {
+            Event.write(out, e);
+        }
+        out.writeVarInt(es.listOfGenerators.size());
+        for (SeriesGenerator g : es.listOfGenerators) {
+            SeriesGenerator.write(out, g);
+        }
+        out.writeVarInt(es.listOfStatutoryEventGenerators.size());
+        for (StatutoryEventGenerator seg : es.listOfStatutoryEventGenerators) {
+            StatutoryEventGenerator.write(out, seg);
+        }
     }
 
+    /**
+     * Writes the single events, series and statutory events of an event system with each of some ids, for the journal.
+     * An id with none left was deleted.
+     *
+     * @param out The writer
+     * @param es  The event system
+     * @param ids The ids
+     */
+    public static void writeChanges(BinaryWriter out, EventSystem es, long[] ids) {
+        synchronized (es) {
+            es.buildIdIndex();
+            for (long id : ids) {
+                es.writeWithId(out, id, es.eventsById, es.listOfEvents, Event::getId, Event::write);
+                es.writeWithId(out, id, es.generatorsById, es.listOfGenerators, SeriesGenerator::getId,
+                        SeriesGenerator::write);
+                es.writeWithId(out, id, es.statutoryById, es.listOfStatutoryEventGenerators,
+                        StatutoryEventGenerator::getId, StatutoryEventGenerator::write);
+            }
+        }
+    }
+
+    /**
+     * Writes the values of list with an id, found in map unless ids collide
+     */
+    private <V> void writeWithId(BinaryWriter out, long id, LongHashMap<V> map, ArrayList<V> list,
+                                 ToLongFunction<V> getId, BiConsumer<BinaryWriter, V> write) {
+        ArrayList<V> withId = new ArrayList<>(1);
+        if (duplicateIds) {
+            for (V value : list) {
+                if (getId.applyAsLong(value) == id) {
+                    withId.add(value);
+                }
+            }
+        } else if (map.containsKey(id)) {
+            withId.add(map.get(id));
+        }
+        out.writeVarInt(withId.size());
+        for (V value : withId) {
+            write.accept(out, value);
+        }
+    }
+
+    /**
+     * Reads changes written by writeChanges. They are kept until applyChanges, so that however many times the journal
+     * changed an event its lists are only gone through once.
+     *
+     * @param in  The reader
+     * @param es  The event system
+     * @param ids The ids the changes were written for
+     * @throws IOException if the reader does not hold them
+     */
+    public static void readChanges(BinaryReader in, EventSystem es, long[] ids) throws IOException {
+        for (long id : ids) {
+            ArrayList<Event> events = new ArrayList<>();
+            for (int i = in.readVarInt(); i > 0; i--) {
+                events.add(Event.read(in));
+            }
+            ArrayList<SeriesGenerator> generators = new ArrayList<>();
+            for (int i = in.readVarInt(); i > 0; i--) {
+                generators.add(SeriesGenerator.read(in));
+            }
+            ArrayList<StatutoryEventGenerator> statutory = new ArrayList<>();
+            for (int i = in.readVarInt(); i > 0; i--) {
+                statutory.add(StatutoryEventGenerator.read(in));
+            }
+            synchronized (es) {
+                if (es.journaled == null) {
+                    es.journaled = new JournaledEvents();
+                }
+                es.journaled.put(id, events, generators, statutory);
+            }
+        }
+    }
+
+    /**
+     * Applies the changes read by readChanges and rebuilds the indexes from the lists when they are next needed. It
+     * is done while the users are read, before anything has been scheduled from them.
+     */
+    public synchronized void applyChanges() {
+        if (journaled == null) {
+            return;
+        }
+        journaled.applyTo(listOfEvents, listOfGenerators, listOfStatutoryEventGenerators);
+        journaled = null;
+        eventIndex = null;
+        eventsById = null;
+        generatorsById = null;
+        statutoryById = null;
+        duplicateIds = false;
+        tagIndex = null;
+        textIndex = null;
+        classifier = null;
+        modCount++;
+        eventModCount++;
+    }
+
+    /**
+     * @param in The reader
+     * @return An event system written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static EventSystem read(BinaryReader in) throws IOException {
+        EventSystem es = new EventSystem(AlertSystem.read(in));
+        int count = in.readVarInt();
+        for (int i = 0; i < count; i++) {
+            es.listOfEvents.add(Event.read(in));
+        }
+        count = in.readVarInt();
+        for (int i = 0; i < count; i++) {
+            es.listOfGenerators.add(SeriesGenerator.read(in));
+        }
+        count = in.readVarInt();
+        for (int i = 0; i < count; i++) {
+            es.listOfStatutoryEventGenerators.add(StatutoryEventGenerator.read(in));
+        }
+        return es;
+    }
 }
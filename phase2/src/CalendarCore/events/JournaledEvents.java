@@ -0,0 +1,74 @@
+package CalendarCore.events;
+
+import CalendarCore.util.LongHashMap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.function.ToLongFunction;
+
+/**
+ * The single events, series and statutory events of an event system with some ids, as read from the journal. They
+ * are collected while the journal is read, a later change to an id replacing an earlier one, and then replace the
+ * events with those ids in one pass over each list of the event system.
+ */
+final class JournaledEvents {
+
+    private final LongHashMap<ArrayList<Event>> events = new LongHashMap<>();
+    private final LongHashMap<ArrayList<SeriesGenerator>> generators = new LongHashMap<>();
+    private final LongHashMap<ArrayList<StatutoryEventGenerator>> statutory = new LongHashMap<>();
+
+    /**
+     * The ids in the order they were first changed, the order in which events new to the lists are added
+     */
+    private final ArrayList<Long> ids = new ArrayList<>();
+
+    /**
+     * @param id         The id
+     * @param events     The single events with the id
+     * @param generators The series with the id
+     * @param statutory  The statutory events with the id
+     */
+    void put(long id, ArrayList<Event> events, ArrayList<SeriesGenerator> generators,
+             ArrayList<StatutoryEventGenerator> statutory) {
+        if (this.events.put(id, events) == null) {
+            ids.add(id);
+        }
+        this.generators.put(id, generators);
+        this.statutory.put(id, statutory);
+    }
+
+    /**
+     * Replaces the events with the changed ids in the lists of an event system
+     */
+    void applyTo(ArrayList<Event> listOfEvents, ArrayList<SeriesGenerator> listOfGenerators,
+                 ArrayList<StatutoryEventGenerator> listOfStatutoryEventGenerators) {
+        replace(listOfEvents, events, Event::getId);
+        replace(listOfGenerators, generators, SeriesGenerator::getId);
+        replace(listOfStatutoryEventGenerators, statutory, StatutoryEventGenerator::getId);
+    }
+
+    /**
+     * Replaces the values of list with a changed id by the values now with it. They take the places of the old ones
+     * in order, and any left over are added at the end.
+     */
+    private <V> void replace(ArrayList<V> list, LongHashMap<ArrayList<V>> byId, ToLongFunction<V> getId) {
+        ArrayList<V> replaced = new ArrayList<>(list.size());
+        LongHashMap<Iterator<V>> remaining = new LongHashMap<>(ids.size());
+        for (long id : ids) {
+            remaining.put(id, byId.get(id).iterator());
+        }
+        for (V value : list) {
+            Iterator<V> next = remaining.get(getId.applyAsLong(value));
+            if (next == null) {
+                replaced.add(value);
+            } else if (next.hasNext()) {
+                replaced.add(next.next());
+            }
+        }
+        for (long id : ids) {
+            remaining.get(id).forEachRemaining(replaced::add);
+        }
+        list.clear();
+        list.addAll(replaced);
+    }
+}
@@ -2,10 +2,19 @@ package CalendarCore.events;
 
 
 import CalendarCore.dates.DateTime;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 public class SeriesEvent extends Event implements Serializable {
+
+    /**
+     * Fixed so that series events saved before the binary save format was added can still be read
+     */
+    private static final long serialVersionUID = 8393657550793915198L;
+
     /**
      * The name of this series
      */
@@ -35,12 +44,28 @@ public class SeriesEvent extends Event implements Serializable {
         }
     }
 
+    /**
+     * An occurrence of a generator's series, which keeps nothing of its own. See SeriesOccurrence
+     *
+     * @param generator The generator
+     */
+    SeriesEvent(SeriesGenerator generator) {
+        this.generator = generator;
+        this.id = generator.getId();
+    }
+
+    /**
+     * An empty SeriesEvent which is filled in by readFields
+     */
+    SeriesEvent() {
+    }
+
     /**
      * @return The String representation of this SeriesEvent
      */
     @Override
     public String toString() {
-        return seriesName + " - " + super.toString();
+        return getSeriesName() + " - " + super.toString();
     }
 
 
@@ -60,4 +85,18 @@ public class SeriesEvent extends Event implements Serializable {
     public String getSeriesName() {
         return seriesName;
     }
+
+    @Override
+    protected void writeFields(BinaryWriter out) {
+        super.writeFields(out);
+        out.writeString(getSeriesName());
+        SeriesGenerator.write(out, getGenerator());
+    }
+
+    @Override
+    protected void readFields(BinaryReader in) throws IOException {
+        super.readFields(in);
+        seriesName = in.readString();
+        generator = SeriesGenerator.read(in);
+    }
 }
@@ -1,12 +1,49 @@
 package CalendarCore.events;
 
 import CalendarCore.dates.DateTime;
+import CalendarCore.metrics.Counter;
+import CalendarCore.metrics.Metrics;
+import CalendarCore.metrics.Timer;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 public class SeriesGenerator implements Serializable {
+
+    /**
+     * Fixed so that series saved before the recurrence engine was added can still be read
+     */
+    private static final long serialVersionUID = 8755186730367112168L;
+
+    /**
+     * How long generate takes, how many events it makes and over how many days
+     */
+    private static final Timer GENERATE_TIMER = Metrics.timer("SeriesGenerator.generate");
+    private static final Counter OCCURRENCES = Metrics.counter("SeriesGenerator.occurrences");
+    private static final Counter DAYS_SCANNED = Metrics.counter("SeriesGenerator.daysScanned");
+
+    /**
+     * How often generate found a month's occurrences already made, and how often it had to make them
+     */
+    private static final Counter WINDOW_HITS = Metrics.counter("SeriesGenerator.windowHits");
+    private static final Counter WINDOW_MISSES = Metrics.counter("SeriesGenerator.windowMisses");
+
+    /**
+     * The most months of occurrences kept by each generator. A longer interval is generated without them.
+     */
+    private static final int MAX_WINDOWS = 24;
+
     /**
      * The frequencies at which an event can occur
      */
@@ -58,6 +95,41 @@ public class SeriesGenerator implements Serializable {
      */
     public DateTime createdOn;
 
+    /**
+     * Counts the changes made to this generator after it was created
+     */
+    private transient int modCount;
+
+    /**
+     * The occurrences of recently generated months, by year * 12 + month, least recently used first. Built lazily.
+     */
+    private transient LinkedHashMap<Integer, Window> windows;
+
+    /**
+     * What the occurrences in windows were made from. See windowsValid()
+     */
+    private transient int windowsModCount;
+    private transient long windowsStart, windowsEnd, windowsCreatedOn;
+
+    /**
+     * The occurrences of a series in one month, with the day each is on
+     */
+    private static class Window {
+        private final long[] epochDays;
+        private final SeriesEvent[] events;
+
+        private Window(long[] epochDays, SeriesEvent[] events) {
+            this.epochDays = epochDays;
+            this.events = events;
+        }
+    }
+
+
+    /**
+     * An empty generator which is filled in by read
+     */
+    private SeriesGenerator() {
+    }
 
     /**
      * A FINITE generator which will create events count times
@@ -166,119 +238,252 @@ public class SeriesGenerator implements Serializable {
     }
 
     /**
-     * Generate events in the given interval
+     * Generate events in the given interval. The occurrences of the months last asked for are kept, so asking again
+     * for the same months returns the same occurrence objects rather than new ones.
      *
      * @param start The start time for the generation interval
      * @param end   The end time for the generation interval
      * @return The events within that interval
      */
-    public ArrayList<SeriesEvent> generate(DateTime start, DateTime end) {
-        ArrayList<SeriesEvent> events = new ArrayList<>();
+    public synchronized ArrayList<SeriesEvent> generate(DateTime start, DateTime end) {
+        long startNanos = GENERATE_TIMER.start();
+        try {
+            ArrayList<SeriesEvent> events = new ArrayList<>();
+
+            // We increment so that the inputs are inclusive, inclusive
+            // Max is the maximum DateTime supported, we ensure we are not incrementing past there
+            DateTime max = new DateTime();
+            if (end.compareTo(max) < 0) {
+                end = end.nextDate();
+            }
 
-        // We increment so that the inputs are inclusive, inclusive
-        // Max is the maximum DateTime supported, we ensure we are not incrementing past there
-        DateTime max = new DateTime();
-        if (end.compareTo(max) < 0) {
-            end = end.nextDate();
-        }
+            if (limit == LIMIT.RECUR_INFINITE) {
+                this.endDate = end;
+            }
 
-        if (limit == LIMIT.RECUR_INFINITE) {
-            this.endDate = end;
-        }
+            // Ensures generator cannot generate before its start date
+            if (start.compareTo(createdOn) < 0) {
+                if (end.compareTo(createdOn) < 0) {
+                    return events;
+                } else {
+                    start = createdOn;
+                }
+            }
 
-        // Ensures generator cannot generate before its start date
-        if (start.compareTo(createdOn) < 0) {
-            if (end.compareTo(createdOn) < 0) {
-                return events;
-            } else {
-                start = createdOn;
+            //Ensures the generator cannot generate after its end date
+            if (end.compareTo(endDate) > 0) {
+                if (start.compareTo(endDate) > 0) {
+                    return events;
+                } else {
+                    end = endDate;
+                }
             }
-        }
 
-        //Ensures the generator cannot generate after its end date
-        if (end.compareTo(endDate) > 0) {
-            if (start.compareTo(endDate) > 0) {
-                return events;
+            LocalDate first = toLocalDate(start);
+            LocalDate last = toLocalDate(end);
+            int firstMonth = monthOf(first);
+            int lastMonth = monthOf(last.minusDays(1));
+            if (lastMonth - firstMonth >= MAX_WINDOWS) {
+                // Too long to keep, and it would push the months being looked at out of windows
+                SeriesRecurrence recurrence = new SeriesRecurrence(frequency, toLocalDate(template.getStart()));
+                LocalDate date = recurrence.nextOnOrAfter(first);
+                while (date != null && date.isBefore(last)) {
+                    events.add(occurrenceOn(date));
+                    date = recurrence.nextOnOrAfter(date.plusDays(1));
+                }
+                DAYS_SCANNED.add(Math.max(0, ChronoUnit.DAYS.between(first, last)));
             } else {
-                end = endDate;
-            }
-        }
-        int sTimeHour = template.getStart().time()[0];
-        int sTimeMin = template.getStart().time()[1];
-        int eTimeHour = template.getEnd().time()[0];
-        int eTimeMin = template.getEnd().time()[1];
-        while (!start.equalDates(end)) {
-            int date = start.get(Calendar.DATE);
-            int mon = start.get(Calendar.MONTH);
-            int year = start.get(Calendar.YEAR);
-            int day = start.get(Calendar.DAY_OF_WEEK);
-
-            boolean create = false;
-            switch (frequency[0]) {
-                case RECUR_DAILY:
-                    create = true;
-                    break;
-                case RECUR_MONTHLY:
-                    create = date == template.getStart().get(Calendar.DATE);
-                    break;
-                case RECUR_YEARLY:
-                    create = (date == template.getStart().get(Calendar.DATE)) &&
-                            (mon == template.getStart().get(Calendar.MONTH));
-                    break;
-                default:
-                    // A weekly recurrence, which will occur on one or more days for count weeks.
-                    for (FREQUENCY f : frequency) {
-                        if (day == dayToInt(f)) {
-                            create = true;
-                            break;
+                long firstDay = first.toEpochDay();
+                long lastDay = last.toEpochDay();
+                for (int month = firstMonth; month <= lastMonth; month++) {
+                    Window window = window(month);
+                    for (int i = 0; i < window.events.length; i++) {
+                        if (window.epochDays[i] >= firstDay && window.epochDays[i] < lastDay) {
+                            events.add(window.events[i]);
                         }
                     }
+                }
             }
+            OCCURRENCES.add(events.size());
+            return events;
+        } finally {
+            GENERATE_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Lazily generates the events of this series which start after a given time, in order of start.
+     * Unlike generate the occurrences are only created as they are asked for, so a long series costs nothing
+     * beyond the occurrences actually used.
+     *
+     * @param from The time after which events must start
+     * @return An iterator over the events of this series starting after from
+     */
+    public synchronized Iterator<SeriesEvent> occurrencesAfter(DateTime from) {
+        return new OccurrenceIterator(from);
+    }
 
-            if (create) {
-                SeriesEvent temp = new SeriesEvent(template.getSeriesName(), template.getTitle(),
-                        new DateTime(year, mon, date, sTimeHour, sTimeMin),
-                        new DateTime(year, mon, date, eTimeHour, eTimeMin), this);
-                temp.addAlerts(template.getAlerts());
-                temp.addTags(template.getTags());
-                events.add(temp);
+    /**
+     * Walks the occurrences of this series between a start time and the generator's end date
+     */
+    private class OccurrenceIterator implements Iterator<SeriesEvent> {
+        private long after;
+        private LocalDate last;
+        private SeriesRecurrence recurrence;
+        private LocalDate date;
+        private SeriesEvent next;
+
+        private OccurrenceIterator(DateTime from) {
+            after = from.getTimeInMillis();
+            // The same dates generate uses: from the later of from and createdOn up to but excluding endDate
+            last = toLocalDate(endDate);
+            recurrence = new SeriesRecurrence(frequency, toLocalDate(template.getStart()));
+            date = recurrence.nextOnOrAfter(toLocalDate(from.compareTo(createdOn) < 0 ? createdOn : from));
+            next = findNext();
+        }
+
+        /**
+         * @return The next occurrence starting after the start time, or null if the series has ended
+         */
+        private SeriesEvent findNext() {
+            synchronized (SeriesGenerator.this) {
+                while (date != null && date.isBefore(last)) {
+                    SeriesEvent occurrence = occurrenceOn(date);
+                    date = recurrence.nextOnOrAfter(date.plusDays(1));
+                    if (occurrence.getStartMillis() > after) {
+                        return occurrence;
+                    }
+                }
+                return null;
             }
+        }
 
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
 
-            // Increment by 1 day
-            start = start.nextDate();
+        @Override
+        public SeriesEvent next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            SeriesEvent occurrence = next;
+            next = findNext();
+            return occurrence;
         }
-        return events;
     }
 
     /**
-     * @param f A FREQUENCY enum for a day of the week
-     * @return A numerical representation of the frequency enum. If f is not a day of the week return -1
-     */
-    private static int dayToInt(FREQUENCY f) {
-        switch (f) {
-            case RECUR_WEEKLY_SUN:
-                return 1;
-            case RECUR_WEEKLY_MON:
-                return 2;
-            case RECUR_WEEKLY_TUE:
-                return 3;
-            case RECUR_WEEKLY_WED:
-                return 4;
-            case RECUR_WEEKLY_THU:
-                return 5;
-            case RECUR_WEEKLY_FRI:
-                return 6;
-            case RECUR_WEEKLY_SAT:
-                return 7;
+     * @param month A month, as year * 12 + month
+     * @return The occurrences of this series in that month from createdOn up to but excluding endDate, made again
+     * only if they are not in windows or the generator or its template changed since they were made
+     */
+    private Window window(int month) {
+        if (windows == null || !windowsValid()) {
+            windows = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Window> eldest) {
+                    return size() > MAX_WINDOWS;
+                }
+            };
+            windowsModCount = modCount;
+            windowsStart = template.getStart().getTimeInMillis();
+            windowsEnd = template.getEnd().getTimeInMillis();
+            windowsCreatedOn = createdOn.getTimeInMillis();
         }
-        return -1;
+        Window window = windows.get(month);
+        if (window != null) {
+            WINDOW_HITS.increment();
+            return window;
+        }
+        WINDOW_MISSES.increment();
+
+        LocalDate from = LocalDate.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1, 1);
+        LocalDate to = from.plusMonths(1);
+        LocalDate created = toLocalDate(createdOn);
+        if (from.isBefore(created)) {
+            from = created;
+        }
+        // An infinite series has its endDate moved to the end of each interval, so only the month limits it
+        if (limit != LIMIT.RECUR_INFINITE) {
+            LocalDate ends = toLocalDate(endDate);
+            if (ends.isBefore(to)) {
+                to = ends;
+            }
+        }
+
+        ArrayList<SeriesEvent> events = new ArrayList<>();
+        ArrayList<LocalDate> dates = new ArrayList<>();
+        SeriesRecurrence recurrence = new SeriesRecurrence(frequency, toLocalDate(template.getStart()));
+        LocalDate date = recurrence.nextOnOrAfter(from);
+        while (date != null && date.isBefore(to)) {
+            events.add(occurrenceOn(date));
+            dates.add(date);
+            date = recurrence.nextOnOrAfter(date.plusDays(1));
+        }
+        DAYS_SCANNED.add(Math.max(0, ChronoUnit.DAYS.between(from, to)));
+
+        long[] epochDays = new long[dates.size()];
+        for (int i = 0; i < epochDays.length; i++) {
+            epochDays[i] = dates.get(i).toEpochDay();
+        }
+        window = new Window(epochDays, events.toArray(new SeriesEvent[0]));
+        windows.put(month, window);
+        return window;
+    }
+
+    /**
+     * The template's times should be changed through setTimes, which counts in modCount, but the template is an
+     * Event anyone can change, so the windows are also dropped when its times differ. Its title, tags and alerts are
+     * read through by each occurrence.
+     *
+     * @return Whether the occurrences in windows are still those generate would make
+     */
+    private boolean windowsValid() {
+        return windowsModCount == modCount
+                && windowsStart == template.getStart().getTimeInMillis()
+                && windowsEnd == template.getEnd().getTimeInMillis()
+                && windowsCreatedOn == createdOn.getTimeInMillis();
+    }
+
+    /**
+     * @param date A date
+     * @return The month of date, as year * 12 + month
+     */
+    private static int monthOf(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    /**
+     * @param date A date the series occurs on
+     * @return The event of this series on that date, at the template's times. It is a view of the template which
+     * cannot be changed; see SeriesOccurrence.
+     */
+    private SeriesEvent occurrenceOn(LocalDate date) {
+        int year = date.getYear();
+        int mon = date.getMonthValue() - 1;
+        int day = date.getDayOfMonth();
+        int[] startTime = template.getStart().time();
+        int[] endTime = template.getEnd().time();
+        return new SeriesOccurrence(this,
+                new DateTime(year, mon, day, startTime[0], startTime[1]).getTimeInMillis(),
+                new DateTime(year, mon, day, endTime[0], endTime[1]).getTimeInMillis());
+    }
+
+    /**
+     * @param dateTime A DateTime
+     * @return The calendar date of dateTime
+     */
+    private static LocalDate toLocalDate(DateTime dateTime) {
+        return LocalDate.of(dateTime.get(Calendar.YEAR), dateTime.get(Calendar.MONTH) + 1,
+                dateTime.get(Calendar.DATE));
     }
 
     /**
      * @return end date
      */
-    public DateTime getEndDate() {
+    public synchronized DateTime getEndDate() {
         return endDate;
     }
 
@@ -298,17 +503,90 @@ public class SeriesGenerator implements Serializable {
         return template;
     }
 
-    public void setFrequency(FREQUENCY[] frequency) {
+    /**
+     * @return A number which changes whenever the frequency or end of this generator is changed
+     */
+    public synchronized int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Changes the start and end times of the template together, so generate never sees one without the other
+     *
+     * @param start The new start date and time of the template
+     * @param end   The new end date and time of the template
+     */
+    public synchronized void setTimes(DateTime start, DateTime end) {
+        template.setStart(start);
+        template.setEnd(end);
+        modCount++;
+    }
+
+    public synchronized void setFrequency(FREQUENCY[] frequency) {
         this.frequency = frequency;
+        modCount++;
     }
 
-    public void setEndCount(int count) {
+    public synchronized void setEndCount(int count) {
         this.limit = LIMIT.RECUR_FINITE;
         this.endDate = calculateEndDate(count - 1);
+        modCount++;
     }
 
-    public void setEndDate(DateTime endDate) {
+    public synchronized void setEndDate(DateTime endDate) {
         this.limit = LIMIT.RECUR_UNTIL;
         this.endDate = endDate;
+        modCount++;
+    }
+
+    /**
+     * Writes a generator in the binary save format. A generator shared by several owners is only written once.
+     *
+     * @param out The writer
+     * @param g   The generator. May be null.
+     */
+    public static void write(BinaryWriter out, SeriesGenerator g) {
+        if (!out.writeReference(g)) {
+            return;
+        }
+        Event.write(out, g.template);
+        out.writeVarInt(g.frequency.length);
+        for (FREQUENCY f : g.frequency) {
+            out.writeVarInt(f.ordinal());
+        }
+        out.writeVarInt(g.limit.ordinal());
+        DateTime.write(out, g.endDate);
+        DateTime.write(out, g.createdOn);
+    }
+
+    /**
+     * @param in The reader
+     * @return A generator written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static SeriesGenerator read(BinaryReader in) throws IOException {
+        Object read = in.readReference();
+        if (read != BinaryReader.NEW) {
+            return BinaryReader.cast(read, SeriesGenerator.class);
+        }
+        SeriesGenerator g = new SeriesGenerator();
+        in.register(g);
+        g.template = BinaryReader.cast(Event.read(in), SeriesEvent.class);
+        g.frequency = new FREQUENCY[in.readVarInt()];
+        for (int i = 0; i < g.frequency.length; i++) {
+            g.frequency[i] = readEnum(in, FREQUENCY.values());
+        }
+        g.limit = readEnum(in, LIMIT.values());
+        g.endDate = DateTime.read(in);
+        g.createdOn = DateTime.read(in);
+        return g;
+    }
+
+    private static <E> E readEnum(BinaryReader in, E[] values) throws IOException {
+        int ordinal = in.readVarInt();
+        if (ordinal >= values.length) {
+            throw new StreamCorruptedException("Unknown constant " + ordinal);
+        }
+        return values[ordinal];
     }
 }
@@ -0,0 +1,177 @@
+package CalendarCore.events;
+
+import CalendarCore.alerts.Alert;
+import CalendarCore.alerts.AlertGenerator;
+import CalendarCore.dates.DateTime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An occurrence of a series as its generator makes it: a view of the generator's template at other times. The title,
+ * series name, tags and alerts are the template's own rather than copies, so an occurrence holds only its start and
+ * end and always shows the template as it is now. The template's lists are handed out unmodifiable.
+ * <p>
+ * An occurrence cannot be changed, as that would change the whole series, and the generator hands the same
+ * occurrences to every caller. materialize gives a copy which can. The series is changed through its generator and
+ * EventSystem.editSeries.
+ */
+final class SeriesOccurrence extends SeriesEvent {
+
+    private static final long serialVersionUID = -4460131946260415806L;
+
+    /**
+     * The start and end of this occurrence in milliseconds
+     */
+    private final long startMillis, endMillis;
+
+    /**
+     * @param generator   The generator of the series
+     * @param startMillis The start of the occurrence in milliseconds
+     * @param endMillis   The end of the occurrence in milliseconds
+     */
+    SeriesOccurrence(SeriesGenerator generator, long startMillis, long endMillis) {
+        super(generator);
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+    }
+
+    private SeriesEvent template() {
+        return getGenerator().getTemplate();
+    }
+
+    /**
+     * @return A new DateTime for the start, so changing it does not change this occurrence
+     */
+    @Override
+    public DateTime getStart() {
+        DateTime start = new DateTime();
+        start.setTimeInMillis(startMillis);
+        return start;
+    }
+
+    /**
+     * @return A new DateTime for the end, so changing it does not change this occurrence
+     */
+    @Override
+    public DateTime getEnd() {
+        DateTime end = new DateTime();
+        end.setTimeInMillis(endMillis);
+        return end;
+    }
+
+    @Override
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    @Override
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    @Override
+    public String getTitle() {
+        return template().getTitle();
+    }
+
+    @Override
+    public String getSeriesName() {
+        return template().getSeriesName();
+    }
+
+    /**
+     * @return The template's alerts, unmodifiable
+     */
+    @Override
+    public List<Alert> getAlerts() {
+        return Collections.unmodifiableList(template().getAlerts());
+    }
+
+    /**
+     * @return The template's recurring alerts, unmodifiable
+     */
+    @Override
+    public List<AlertGenerator> getAlertGenerators() {
+        return Collections.unmodifiableList(template().getAlertGenerators());
+    }
+
+    /**
+     * @return The template's tags, unmodifiable
+     */
+    @Override
+    public List<String> getTags() {
+        return Collections.unmodifiableList(template().getTags());
+    }
+
+    /**
+     * @return A new SeriesEvent of the same series with this occurrence's times and copies of the template's alerts
+     * and tags, which can be changed without changing the series
+     */
+    @Override
+    public SeriesEvent materialize() {
+        SeriesEvent temp = new SeriesEvent(getSeriesName(), getTitle(), getStart(), getEnd(), getGenerator());
+        temp.alerts.addAll(getAlerts());
+        temp.getAlertGenerators().addAll(getAlertGenerators());
+        temp.tags.addAll(getTags());
+        return temp;
+    }
+
+    @Override
+    public void setStart(DateTime start) {
+        throw unchangeable();
+    }
+
+    @Override
+    public void setEnd(DateTime end) {
+        throw unchangeable();
+    }
+
+    @Override
+    public void setTitle(String title) {
+        throw unchangeable();
+    }
+
+    @Override
+    public void setTags(ArrayList<String> tags) {
+        throw unchangeable();
+    }
+
+    @Override
+    public void addAlerts(ArrayList<Alert> alerts) {
+        throw unchangeable();
+    }
+
+    @Override
+    public void addAlertGenerator(AlertGenerator generator) {
+        throw unchangeable();
+    }
+
+    @Override
+    public boolean removeAlert(Alert alert) {
+        throw unchangeable();
+    }
+
+    @Override
+    public boolean removeAlertGenerator(AlertGenerator generator) {
+        throw unchangeable();
+    }
+
+    @Override
+    public void addTags(ArrayList<String> tags) {
+        throw unchangeable();
+    }
+
+    private static UnsupportedOperationException unchangeable() {
+        return new UnsupportedOperationException("An occurrence of a series cannot be changed. Change the series' "
+                + "template, or a copy from materialize.");
+    }
+
+    /**
+     * Saves a copy rather than the view, so a saved file never holds an occurrence
+     */
+    private Object writeReplace() {
+        return materialize();
+    }
+}
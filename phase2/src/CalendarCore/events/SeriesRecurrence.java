@@ -0,0 +1,126 @@
+package CalendarCore.events;
+
+import java.time.LocalDate;
+
+/**
+ * Computes the dates on which a series recurs directly from its frequency, so that finding the next occurrence
+ * never walks through the days in between.
+ */
+class SeriesRecurrence {
+
+    /**
+     * The frequencies of the series
+     */
+    private SeriesGenerator.FREQUENCY[] frequency;
+
+    /**
+     * The day of the month the series recurs on for monthly and yearly series
+     */
+    private int dayOfMonth;
+
+    /**
+     * The month (1-12) the series recurs in for yearly series
+     */
+    private int month;
+
+    /**
+     * weekdays[i] is true iff a weekly series recurs on the day of the week i (0 = Monday ... 6 = Sunday)
+     */
+    private boolean[] weekdays = new boolean[7];
+
+    /**
+     * @param frequency The frequencies at which the series recurs
+     *                  Precondition: If len(frequency) > 1 Then frequency contains days of the week Else
+     *                  frequency contains Daily, Monthly or Yearly
+     * @param anchor    The date of the template event which monthly and yearly series repeat
+     */
+    SeriesRecurrence(SeriesGenerator.FREQUENCY[] frequency, LocalDate anchor) {
+        this.frequency = frequency;
+        this.dayOfMonth = anchor.getDayOfMonth();
+        this.month = anchor.getMonthValue();
+        for (SeriesGenerator.FREQUENCY f : frequency) {
+            int day = weekdayIndex(f);
+            if (day != -1) {
+                weekdays[day] = true;
+            }
+        }
+    }
+
+    /**
+     * @param date The first date to consider
+     * @return The first date on or after date that the series recurs on, or null if there is none
+     */
+    LocalDate nextOnOrAfter(LocalDate date) {
+        switch (frequency[0]) {
+            case RECUR_DAILY:
+                return date;
+            case RECUR_MONTHLY:
+                return nextMonthly(date);
+            case RECUR_YEARLY:
+                return nextYearly(date);
+            default:
+                // A weekly recurrence, which will occur on one or more days of the week
+                for (int i = 0; i < 7; i++) {
+                    LocalDate candidate = date.plusDays(i);
+                    if (weekdays[candidate.getDayOfWeek().getValue() - 1]) {
+                        return candidate;
+                    }
+                }
+                return null;
+        }
+    }
+
+    /**
+     * @return The first date on or after date which falls on dayOfMonth. Months too short for it are skipped.
+     */
+    private LocalDate nextMonthly(LocalDate date) {
+        LocalDate firstOfMonth = date.withDayOfMonth(1);
+        if (date.getDayOfMonth() > dayOfMonth) {
+            firstOfMonth = firstOfMonth.plusMonths(1);
+        }
+        // Every month has at least 28 days and every 31 day date recurs within 2 months
+        while (firstOfMonth.lengthOfMonth() < dayOfMonth) {
+            firstOfMonth = firstOfMonth.plusMonths(1);
+        }
+        return firstOfMonth.withDayOfMonth(dayOfMonth);
+    }
+
+    /**
+     * @return The first date on or after date which falls on dayOfMonth of month. The 29th of February only
+     * recurs on leap years.
+     */
+    private LocalDate nextYearly(LocalDate date) {
+        int year = date.getYear();
+        if (date.getMonthValue() > month || (date.getMonthValue() == month && date.getDayOfMonth() > dayOfMonth)) {
+            year++;
+        }
+        while (LocalDate.of(year, month, 1).lengthOfMonth() < dayOfMonth) {
+            year++;
+        }
+        return LocalDate.of(year, month, dayOfMonth);
+    }
+
+    /**
+     * @param f A FREQUENCY enum for a day of the week
+     * @return The index of that day in weekdays. If f is not a day of the week return -1
+     */
+    private static int weekdayIndex(SeriesGenerator.FREQUENCY f) {
+        switch (f) {
+            case RECUR_WEEKLY_MON:
+                return 0;
+            case RECUR_WEEKLY_TUE:
+                return 1;
+            case RECUR_WEEKLY_WED:
+                return 2;
+            case RECUR_WEEKLY_THU:
+                return 3;
+            case RECUR_WEEKLY_FRI:
+                return 4;
+            case RECUR_WEEKLY_SAT:
+                return 5;
+            case RECUR_WEEKLY_SUN:
+                return 6;
+        }
+        return -1;
+    }
+}
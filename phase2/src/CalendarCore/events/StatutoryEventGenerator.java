@@ -1,13 +1,24 @@
 package CalendarCore.events;
 
 import CalendarCore.dates.DateTime;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public class StatutoryEventGenerator implements Serializable {
 
+    /**
+     * Fixed so that statutory events saved before occurrencesAfter was added can still be read
+     */
+    private static final long serialVersionUID = 6416180747051820797L;
+
     /**
      * day represents the following:
      * 0 - Sunday
@@ -41,6 +52,12 @@ public class StatutoryEventGenerator implements Serializable {
      */
     private long id;
 
+    /**
+     * An empty generator which is filled in by read
+     */
+    private StatutoryEventGenerator() {
+    }
+
     public StatutoryEventGenerator(String eventName, int day, int week, int month) {
         // Since weeks begin at 1 = SUN
         this.day = day + 1;
@@ -148,5 +165,98 @@ public class StatutoryEventGenerator implements Serializable {
         return events;
     }
 
+    /**
+     * Lazily generates the occurrences of this event after a given time, in order. Each occurrence is found
+     * directly from its month rather than by checking every day.
+     *
+     * @param from the time after which occurrences must start. Occurrences are at the same time of day as from
+     * @return an iterator over the occurrences after from
+     */
+    public Iterator<Event> occurrencesAfter(DateTime from) {
+        return new Iterator<Event>() {
+            private LocalDate nextMonth = LocalDate.of(from.get(Calendar.YEAR), from.get(Calendar.MONTH) + 1, 1);
+            private Event next = findNext();
 
+            /**
+             * @return the next occurrence after from, or null if this event can not occur
+             */
+            private Event findNext() {
+                // A 5th week that never falls in the chosen month would otherwise be searched for forever
+                LocalDate giveUp = nextMonth.plusYears(400);
+                while (nextMonth.isBefore(giveUp)) {
+                    LocalDate date = dateIn(nextMonth);
+                    nextMonth = nextMonth.plusMonths(1);
+                    if (date != null) {
+                        Event occurrence = toEvent(new DateTime(date.getYear(), date.getMonthValue() - 1,
+                                date.getDayOfMonth(), from.time()[0], from.time()[1]));
+                        if (occurrence.getStart().compareTo(from) > 0) {
+                            return occurrence;
+                        }
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Event next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Event occurrence = next;
+                next = findNext();
+                return occurrence;
+            }
+        };
+    }
+
+    /**
+     * @param firstOfMonth the first day of a month
+     * @return the date this event falls on in that month, or null if it does not occur in that month
+     */
+    private LocalDate dateIn(LocalDate firstOfMonth) {
+        if (week < 1 || week > 5 || day < 1 || day > 7 || (month <= 12 && firstOfMonth.getMonthValue() - 1 != month)) {
+            return null;
+        }
+        // day counts from 1 = Sunday while DayOfWeek counts from 1 = Monday
+        int firstDay = firstOfMonth.getDayOfWeek().getValue() % 7 + 1;
+        int date = 1 + Math.floorMod(day - firstDay, 7) + 7 * (week - 1);
+        if (date > firstOfMonth.lengthOfMonth()) {
+            return null;
+        }
+        return firstOfMonth.withDayOfMonth(date);
+    }
+
+    /**
+     * Writes a statutory event generator in the binary save format
+     *
+     * @param out The writer
+     * @param seg The generator
+     */
+    public static void write(BinaryWriter out, StatutoryEventGenerator seg) {
+        out.writeVarLong(seg.day);
+        out.writeVarLong(seg.week);
+        out.writeVarLong(seg.month);
+        out.writeString(seg.eventName);
+        out.writeVarLong(seg.id);
+    }
+
+    /**
+     * @param in The reader
+     * @return A generator written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static StatutoryEventGenerator read(BinaryReader in) throws IOException {
+        StatutoryEventGenerator seg = new StatutoryEventGenerator();
+        seg.day = (int) in.readVarLong();
+        seg.week = (int) in.readVarLong();
+        seg.month = (int) in.readVarLong();
+        seg.eventName = in.readString();
+        seg.id = in.readVarLong();
+        return seg;
+    }
 }
@@ -0,0 +1,78 @@
+package CalendarCore.events;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+/**
+ * An inverted index from each tag to the single events and series tagged with it, so finding the events with a tag
+ * only looks at those events rather than at every event. A series is tagged by the tags of its template.
+ * <p>
+ * The index is only correct while no tags have changed except through the event system which owns it.
+ */
+class TagIndex {
+
+    /**
+     * The single events with each tag, in the order they were indexed
+     */
+    private HashMap<String, LinkedHashSet<Event>> events = new HashMap<>();
+
+    /**
+     * The series whose template has each tag, in the order they were indexed
+     */
+    private HashMap<String, LinkedHashSet<SeriesGenerator>> series = new HashMap<>();
+
+    void add(Event e) {
+        for (String tag : e.getTags()) {
+            events.computeIfAbsent(tag, k -> new LinkedHashSet<>()).add(e);
+        }
+    }
+
+    void remove(Event e) {
+        for (String tag : e.getTags()) {
+            removePosting(events, tag, e);
+        }
+    }
+
+    void add(SeriesGenerator g) {
+        for (String tag : g.getTemplate().getTags()) {
+            series.computeIfAbsent(tag, k -> new LinkedHashSet<>()).add(g);
+        }
+    }
+
+    void remove(SeriesGenerator g) {
+        for (String tag : g.getTemplate().getTags()) {
+            removePosting(series, tag, g);
+        }
+    }
+
+    /**
+     * @param tag A tag
+     * @return The single events with the tag
+     */
+    Collection<Event> getEvents(String tag) {
+        LinkedHashSet<Event> tagged = events.get(tag);
+        return tagged == null ? Collections.emptyList() : new ArrayList<>(tagged);
+    }
+
+    /**
+     * @param tag A tag
+     * @return The series whose template has the tag
+     */
+    Collection<SeriesGenerator> getSeries(String tag) {
+        LinkedHashSet<SeriesGenerator> tagged = series.get(tag);
+        return tagged == null ? Collections.emptyList() : new ArrayList<>(tagged);
+    }
+
+    /**
+     * Removes value from the posting list of tag, and the list itself once it is empty
+     */
+    private static <V> void removePosting(HashMap<String, LinkedHashSet<V>> postings, String tag, V value) {
+        LinkedHashSet<V> tagged = postings.get(tag);
+        if (tagged != null && tagged.remove(value) && tagged.isEmpty()) {
+            postings.remove(tag);
+        }
+    }
+}
@@ -1,14 +1,30 @@
 package CalendarCore.memos;
 
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
+import CalendarCore.util.LongHashSet;
+
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 
 public class Memo implements Serializable {
 
+    /**
+     * Fixed so that memos saved before the binary save format was added can still be read
+     */
+    private static final long serialVersionUID = 4186936743083516006L;
+
     private String description;
 
     private ArrayList<Long> listOfEventID = new ArrayList<>();
 
+    /**
+     * The ids in listOfEventID, so that whether the memo is about an event is found without scanning the list. Built
+     * from listOfEventID when first needed.
+     */
+    private transient LongHashSet eventIDs;
+
     /**
      * @param description the description of the memo
      */
@@ -24,8 +40,36 @@ public class Memo implements Serializable {
         return listOfEventID;
     }
 
-    public void addEvent(Long eventID) {
+    /**
+     * Adds an event to the memo, unless the memo is about it already
+     *
+     * @param eventID The id of the event
+     * @return True iff the event was added
+     */
+    public boolean addEvent(long eventID) {
+        if (!getEventIDs().add(eventID)) {
+            return false;
+        }
         listOfEventID.add(eventID);
+        return true;
+    }
+
+    /**
+     * @param eventID The id of an event
+     * @return True iff this memo is about the event
+     */
+    public boolean hasEvent(long eventID) {
+        return getEventIDs().contains(eventID);
+    }
+
+    private LongHashSet getEventIDs() {
+        if (eventIDs == null) {
+            eventIDs = new LongHashSet(listOfEventID.size());
+            for (long id : listOfEventID) {
+                eventIDs.add(id);
+            }
+        }
+        return eventIDs;
     }
 
     /**
@@ -40,9 +84,43 @@ public class Memo implements Serializable {
      * Removes an event from the listOfEventID
      *
      * @param eventID eventID to be removed
+     * @return True iff the memo was about the event
+     */
+    public boolean removeEventID(long eventID) {
+        if (!getEventIDs().remove(eventID)) {
+            return false;
+        }
+        // Memos saved before ids were kept unique may hold an id more than once, and remove(Object) only removes the
+        // first
+        listOfEventID.removeIf(id -> id == eventID);
+        return true;
+    }
+
+    /**
+     * Writes a memo in the binary save format
+     *
+     * @param out The writer
+     * @param m   The memo
      */
-    public void removeEventID(long eventID) {
-        listOfEventID.remove(eventID);
+    public static void write(BinaryWriter out, Memo m) {
+        out.writeString(m.description);
+        out.writeVarInt(m.listOfEventID.size());
+        for (long id : m.listOfEventID) {
+            out.writeVarLong(id);
+        }
     }
 
+    /**
+     * @param in The reader
+     * @return A memo written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static Memo read(BinaryReader in) throws IOException {
+        Memo m = new Memo(in.readString());
+        int count = in.readVarInt();
+        for (int i = 0; i < count; i++) {
+            m.listOfEventID.add(in.readVarLong());
+        }
+        return m;
+    }
 }
@@ -1,31 +1,86 @@
 package CalendarCore.memos;
 
+import CalendarCore.search.TextIndex;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
+import CalendarCore.util.LongHashMap;
+
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 public class MemoSystem implements Serializable {
 
+    /**
+     * Fixed so that memos saved before the binary save format was added can still be read
+     */
+    private static final long serialVersionUID = -5891815922389995759L;
+
+    /**
+     * How much a word of a memo counts for in a text search, less than a word of an event's title
+     */
+    private static final int DESCRIPTION_WEIGHT = 1;
+
     private ArrayList<Memo> listOfMemo = new ArrayList<>();
 
+    /**
+     * The words of the memos, built from listOfMemo the first time memos are searched
+     */
+    private transient TextIndex<Memo> textIndex;
+
+    /**
+     * The memos about each event, by event id, in the order the event was added to them. Built from listOfMemo the
+     * first time an event's memos are looked up, and only holds events with at least one memo.
+     */
+    private transient LongHashMap<ArrayList<Memo>> memosByEvent;
+
+    /**
+     * True iff a memo was created, deleted or changed since takeChanged was last called
+     */
+    private transient boolean changed;
+
     /**
      * Creates a memo
      *
      * @param description The description of memo
      */
-    public void createMemo(String description) {
+    public synchronized void createMemo(String description) {
         Memo memo = new Memo(description);
         listOfMemo.add(memo);
+        changed = true;
+        if (textIndex != null) {
+            textIndex.add(memo, memo.toString(), DESCRIPTION_WEIGHT);
+        }
+    }
+
+    /**
+     * Removes an event from every memo about it
+     *
+     * @param eventID The ID of the event
+     */
+    public synchronized void removeEventInMemo(long eventID) {
+        ArrayList<Memo> memos = getMemosByEvent().remove(eventID);
+        if (memos != null) {
+            for (Memo m : memos) {
+                m.removeEventID(eventID);
+            }
+            changed = true;
+        }
     }
 
     /**
-     * Deletes a memo for the event
+     * Removes an event from one memo, leaving any other memos about it
      *
+     * @param memo    The memo
      * @param eventID The ID of the event
      */
-    public void removeEventInMemo(long eventID) {
-        Memo m = getMemo(eventID);
-        if (m != null) {
-            m.removeEventID(eventID);
+    public synchronized void removeEventFromMemo(Memo memo, long eventID) {
+        if (memo.removeEventID(eventID)) {
+            changed = true;
+            if (memosByEvent != null) {
+                unindexEvent(memo, eventID);
+            }
         }
     }
 
@@ -34,8 +89,18 @@ public class MemoSystem implements Serializable {
      *
      * @param m The memo to delete
      */
-    public void deleteMemo(Memo m) {
-        listOfMemo.remove(m);
+    public synchronized void deleteMemo(Memo m) {
+        changed |= listOfMemo.remove(m);
+        if (!listOfMemo.contains(m)) {
+            if (textIndex != null) {
+                textIndex.remove(m);
+            }
+            if (memosByEvent != null) {
+                for (long id : m.getListOfEventID()) {
+                    unindexEvent(m, id);
+                }
+            }
+        }
     }
 
     /**
@@ -44,8 +109,13 @@ public class MemoSystem implements Serializable {
      * @param memo    to which eventID is added
      * @param eventID added to memo
      */
-    public void addEventToMemo(Memo memo, Long eventID) {
-        memo.addEvent(eventID);
+    public synchronized void addEventToMemo(Memo memo, long eventID) {
+        if (memo.addEvent(eventID)) {
+            changed = true;
+            if (memosByEvent != null) {
+                indexEvent(memo, eventID);
+            }
+        }
     }
 
     /**
@@ -57,15 +127,50 @@ public class MemoSystem implements Serializable {
 
     /**
      * @param eventID The id of the event
-     * @return Memo that relates to the eventID or None if the eventID does not have a memo
+     * @return The first memo the event was added to, or null if the eventID does not have a memo
      */
-    public Memo getMemo(long eventID) {
-        for (Memo m : listOfMemo) {
-            if (m.getListOfEventID().contains(eventID)) {
-                return m;
+    public synchronized Memo getMemo(long eventID) {
+        ArrayList<Memo> memos = getMemosByEvent().get(eventID);
+        return memos == null ? null : memos.get(0);
+    }
+
+    /**
+     * @param eventID The id of the event
+     * @return Every memo about the event, in the order it was added to them
+     */
+    public synchronized ArrayList<Memo> getMemos(long eventID) {
+        ArrayList<Memo> memos = getMemosByEvent().get(eventID);
+        return memos == null ? new ArrayList<>() : new ArrayList<>(memos);
+    }
+
+    private LongHashMap<ArrayList<Memo>> getMemosByEvent() {
+        if (memosByEvent == null) {
+            memosByEvent = new LongHashMap<>();
+            for (Memo m : listOfMemo) {
+                for (long id : m.getListOfEventID()) {
+                    indexEvent(m, id);
+                }
             }
         }
-        return null;
+        return memosByEvent;
+    }
+
+    private void indexEvent(Memo m, long eventID) {
+        ArrayList<Memo> memos = memosByEvent.get(eventID);
+        if (memos == null) {
+            memos = new ArrayList<>(1);
+            memosByEvent.put(eventID, memos);
+        }
+        if (!memos.contains(m)) {
+            memos.add(m);
+        }
+    }
+
+    private void unindexEvent(Memo m, long eventID) {
+        ArrayList<Memo> memos = memosByEvent.get(eventID);
+        if (memos != null && memos.remove(m) && memos.isEmpty()) {
+            memosByEvent.remove(eventID);
+        }
     }
 
     public Memo getMemoFromText(String memoText) {
@@ -76,4 +181,70 @@ public class MemoSystem implements Serializable {
         }
         return null;
     }
+
+    /**
+     * Finds the memos whose descriptions hold every word of a query, or words starting with them
+     *
+     * @param query The words to search for
+     * @return The score of each memo found, higher for better matches
+     */
+    public synchronized HashMap<Memo, Double> searchText(String query) {
+        if (textIndex == null) {
+            textIndex = new TextIndex<>();
+            for (Memo m : listOfMemo) {
+                textIndex.add(m, m.toString(), DESCRIPTION_WEIGHT);
+            }
+        }
+        return textIndex.search(query);
+    }
+
+    /**
+     * Writes a memo system in the binary save format
+     *
+     * @param out The writer
+     * @param ms  The memo system
+     */
+    public static void write(BinaryWriter out, MemoSystem ms) {
+        out.writeVarInt(ms.listOfMemo.size());
+        for (Memo m : ms.listOfMemo) {
+            Memo.write(out, m);
+        }
+    }
+
+    /**
+     * @return true iff a memo was created, deleted or changed since this was last called, so the memos need journaling
+     */
+    public synchronized boolean takeChanged() {
+        boolean wasChanged = changed;
+        changed = false;
+        return wasChanged;
+    }
+
+    /**
+     * Replaces the memos of a memo system with those of another, read from the journal
+     *
+     * @param ms    The memo system
+     * @param memos The memo system holding the memos
+     */
+    public static void replaceMemos(MemoSystem ms, MemoSystem memos) {
+        synchronized (ms) {
+            ms.listOfMemo = memos.listOfMemo;
+            ms.textIndex = null;
+            ms.memosByEvent = null;
+        }
+    }
+
+    /**
+     * @param in The reader
+     * @return A memo system written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static MemoSystem read(BinaryReader in) throws IOException {
+        MemoSystem ms = new MemoSystem();
+        int count = in.readVarInt();
+        for (int i = 0; i < count; i++) {
+            ms.listOfMemo.add(Memo.read(in));
+        }
+        return ms;
+    }
 }
@@ -0,0 +1,41 @@
+package CalendarCore.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of how many times something happened, or of how many things it handled. Counting does not allocate and
+ * threads counting at once do not wait for each other.
+ */
+public class Counter {
+
+    private final String name;
+
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * @param n The amount to add to the count
+     */
+    public void add(long n) {
+        count.add(n);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    void reset() {
+        count.reset();
+    }
+}
@@ -0,0 +1,115 @@
+package CalendarCore.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The counters and timers of the calendar, by name. A class which is measured looks up its counters and timers once
+ * and keeps them in static fields, so measuring costs no more than the counting itself.
+ * <p>
+ * Their values can be read through JMX once registerMBean has been called, under the name OBJECT_NAME, or written
+ * to a file with dump.
+ */
+public class Metrics {
+
+    /**
+     * The name the metrics are registered under in JMX
+     */
+    public static final String OBJECT_NAME = "CalendarCore:type=Metrics";
+
+    private static final ConcurrentSkipListMap<String, Counter> counters = new ConcurrentSkipListMap<>();
+
+    private static final ConcurrentSkipListMap<String, Timer> timers = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * @param name The name of a counter
+     * @return The counter with the name, created the first time it is asked for
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * @param name The name of a timer
+     * @return The timer with the name, created the first time it is asked for
+     */
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    static Iterable<Counter> getCounters() {
+        return counters.values();
+    }
+
+    static Iterable<Timer> getTimers() {
+        return timers.values();
+    }
+
+    /**
+     * Sets every counter and timer back to zero
+     */
+    public static void reset() {
+        for (Counter c : counters.values()) {
+            c.reset();
+        }
+        for (Timer t : timers.values()) {
+            t.reset();
+        }
+    }
+
+    /**
+     * Makes the metrics readable through JMX. Does nothing if they already are.
+     */
+    public static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsBean(), name);
+            }
+        } catch (JMException e) {
+            System.out.println("Error registering the metrics with JMX.");
+        }
+    }
+
+    /**
+     * Writes every counter, and the count, mean, percentiles and maximum of every timer in milliseconds
+     *
+     * @param out Where to write them
+     */
+    public static void dump(PrintStream out) {
+        out.printf("%-32s %12s%n", "counter", "count");
+        for (Counter c : counters.values()) {
+            out.printf("%-32s %12d%n", c.getName(), c.getCount());
+        }
+        out.println();
+        out.printf("%-32s %10s %10s %10s %10s %10s %10s%n", "timer", "count", "mean ms", "p50 ms", "p90 ms",
+                "p99 ms", "max ms");
+        for (Timer t : timers.values()) {
+            out.printf("%-32s %10d %10.3f %10.3f %10.3f %10.3f %10.3f%n", t.getName(), t.getCount(),
+                    t.getMeanNanos() / 1e6, t.getPercentileNanos(50) / 1e6, t.getPercentileNanos(90) / 1e6,
+                    t.getPercentileNanos(99) / 1e6, t.getMaxNanos() / 1e6);
+        }
+    }
+
+    /**
+     * Writes the metrics as dump(PrintStream) does to a file, replacing it
+     *
+     * @param path The path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void dump(String path) throws IOException {
+        try (PrintStream out = new PrintStream(new FileOutputStream(path))) {
+            dump(out);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package CalendarCore.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Shows the metrics in JMX. Each counter is an attribute holding its count, and each timer is an attribute for each
+ * of its count, mean, percentiles and maximum, in milliseconds. The operations dump and reset do as Metrics does.
+ * <p>
+ * The attributes are read from the metrics when asked for, so counters and timers created later show up too.
+ */
+class MetricsBean implements DynamicMBean {
+
+    /**
+     * The statistics each timer has an attribute for, named with the timer's name and a space before them
+     */
+    private static final String[] TIMER_STATS = {"count", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms"};
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        for (Counter c : Metrics.getCounters()) {
+            if (c.getName().equals(attribute)) {
+                return c.getCount();
+            }
+        }
+        for (String stat : TIMER_STATS) {
+            if (attribute.endsWith(" " + stat)) {
+                String name = attribute.substring(0, attribute.length() - stat.length() - 1);
+                for (Timer t : Metrics.getTimers()) {
+                    if (t.getName().equals(name)) {
+                        return timerStat(t, stat);
+                    }
+                }
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    private static Object timerStat(Timer t, String stat) throws AttributeNotFoundException {
+        switch (stat) {
+            case "count":
+                return t.getCount();
+            case "mean ms":
+                return t.getMeanNanos() / 1e6;
+            case "p50 ms":
+                return t.getPercentileNanos(50) / 1e6;
+            case "p90 ms":
+                return t.getPercentileNanos(90) / 1e6;
+            case "p99 ms":
+                return t.getPercentileNanos(99) / 1e6;
+            case "max ms":
+                return t.getMaxNanos() / 1e6;
+        }
+        throw new AttributeNotFoundException(t.getName() + " " + stat);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("The metrics are read only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Left out of the list, as JMX expects
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException,
+            ReflectionException {
+        switch (actionName) {
+            case "dump":
+                try {
+                    Metrics.dump((String) params[0]);
+                } catch (IOException e) {
+                    throw new MBeanException(e);
+                }
+                return null;
+            case "reset":
+                Metrics.reset();
+                return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        ArrayList<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Counter c : Metrics.getCounters()) {
+            attributes.add(new MBeanAttributeInfo(c.getName(), "long", "A count", true, false, false));
+        }
+        for (Timer t : Metrics.getTimers()) {
+            for (String stat : TIMER_STATS) {
+                String type = stat.equals("count") ? "long" : "double";
+                attributes.add(new MBeanAttributeInfo(t.getName() + " " + stat, type, "A time", true, false,
+                        false));
+            }
+        }
+        MBeanOperationInfo[] operations = {
+                new MBeanOperationInfo("dump", "Writes the metrics to a file",
+                        new MBeanParameterInfo[]{new MBeanParameterInfo("path", "java.lang.String", "The file")},
+                        "void", MBeanOperationInfo.ACTION),
+                new MBeanOperationInfo("reset", "Sets every metric back to zero", new MBeanParameterInfo[0],
+                        "void", MBeanOperationInfo.ACTION)
+        };
+        return new MBeanInfo(MetricsBean.class.getName(), "The counters and timers of the calendar",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, operations, null);
+    }
+}
@@ -0,0 +1,164 @@
+package CalendarCore.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How long an operation takes, as a histogram of its times from which percentiles can be read.
+ * <p>
+ * Like an HDR histogram, the buckets are exact for small times and then split each power of two into the same number
+ * of buckets, so every time is kept to within about 3% however long it is. Recording a time does not allocate, and
+ * the buckets are counted atomically so any thread may record.
+ * <p>
+ * Usage: long start = timer.start(); try { ... } finally { timer.stop(start); }
+ */
+public class Timer {
+
+    /**
+     * Each power of two is split into 2^(SUB_BITS - 1) buckets
+     */
+    private static final int SUB_BITS = 6;
+
+    /**
+     * Times below this many nanoseconds each have their own bucket
+     */
+    private static final int EXACT = 1 << SUB_BITS;
+
+    private static final int HALF = EXACT / 2;
+
+    /**
+     * Enough buckets for any non negative long
+     */
+    private static final int BUCKETS = EXACT + (63 - SUB_BITS) * HALF;
+
+    private final String name;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The time the operation started, to pass to stop
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time since an operation started
+     *
+     * @param startNanos What start returned when the operation started
+     */
+    public void stop(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @param nanos The time an operation took
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucket(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return The mean time, or 0 if nothing has been recorded
+     */
+    public double getMeanNanos() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getTotalNanos() / n;
+    }
+
+    /**
+     * @param percent A percentage from 0 to 100
+     * @return A time which at least percent percent of the times recorded are no longer than, to within the width
+     * of a bucket, or 0 if nothing has been recorded
+     */
+    public long getPercentileNanos(double percent) {
+        // Counts the buckets as they are now. A time recorded meanwhile may or may not be included.
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percent / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(highestIn(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    /**
+     * @return The bucket a time is counted in
+     */
+    private static int bucket(long nanos) {
+        if (nanos < EXACT) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        // The top SUB_BITS bits of the time, the first of which is always 1
+        int mantissa = (int) (nanos >>> (exponent - SUB_BITS + 1));
+        return EXACT + (exponent - SUB_BITS) * HALF + (mantissa - HALF);
+    }
+
+    /**
+     * @return The longest time counted in a bucket
+     */
+    private static long highestIn(int bucket) {
+        if (bucket < EXACT) {
+            return bucket;
+        }
+        int exponent = (bucket - EXACT) / HALF + SUB_BITS;
+        long mantissa = (bucket - EXACT) % HALF + HALF;
+        int shift = exponent - SUB_BITS + 1;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,57 @@
+package CalendarCore.search;
+
+import CalendarCore.calendar.CalendarSystem;
+import CalendarCore.events.Event;
+import CalendarCore.events.EventSystem;
+import CalendarCore.memos.Memo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Full text search over the events of some calendars: their titles, series names and tags, and the memos about them.
+ * Each event system and memo system keeps its own index up to date as it changes, so a search only looks up the
+ * words of the query.
+ */
+public class CalendarSearch {
+
+    private CalendarSearch() {
+    }
+
+    /**
+     * Finds the events which match every word of a query, or words starting with them, in their title, series name
+     * and tags or in a memo about them. An event matched both ways scores for both. A series is found as its
+     * template.
+     *
+     * @param calendars The calendars to search
+     * @param query     The words to search for. The last may be unfinished.
+     * @param limit     The most events to return
+     * @return The best matching events, best first
+     */
+    public static ArrayList<Event> search(ArrayList<CalendarSystem> calendars, String query, int limit) {
+        HashMap<Event, Double> scores = null;
+        for (CalendarSystem cs : calendars) {
+            EventSystem es = cs.getEventSystem();
+            HashMap<Event, Double> found = es.searchText(query);
+            if (scores == null) {
+                scores = found;
+            } else {
+                for (Map.Entry<Event, Double> hit : found.entrySet()) {
+                    scores.merge(hit.getKey(), hit.getValue(), Double::sum);
+                }
+            }
+
+            for (Map.Entry<Memo, Double> hit : cs.getMemoSystem().searchText(query).entrySet()) {
+                for (long id : new ArrayList<>(hit.getKey().getListOfEventID())) {
+                    Event e = es.getEventByID(id);
+                    // getEventByID returns an empty event for an id it does not know
+                    if (e.getTitle() != null) {
+                        scores.merge(e, hit.getValue(), Double::sum);
+                    }
+                }
+            }
+        }
+        return scores == null ? new ArrayList<>() : TextIndex.rank(scores, limit);
+    }
+}
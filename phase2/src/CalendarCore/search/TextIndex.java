@@ -0,0 +1,188 @@
+package CalendarCore.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * An inverted index from words to the documents whose text contains them, for ranked full text search.
+ * <p>
+ * A document is indexed as pieces of text, each with a weight, such as a title which counts for more than a tag. The
+ * words are kept in sorted order, so a query word also finds every word it is the start of: "meet" finds "meeting".
+ * A document matches a query if it matches every word of it, and it scores the sum over the query's words of the
+ * best weight of a word it matched, scaled down for prefix matches and for words which are in many documents.
+ * <p>
+ * Documents are told apart by equals, which for events and memos is identity.
+ *
+ * @param <D> The type of the documents
+ */
+public class TextIndex<D> {
+
+    /**
+     * How much a word which only starts with the query word counts for, compared with the query word itself
+     */
+    private static final double PREFIX_MATCH = 0.5;
+
+    /**
+     * The weight of each word in each document with it, by word
+     */
+    private TreeMap<String, HashMap<D, Integer>> postings = new TreeMap<>();
+
+    /**
+     * The words of each document, so it can be removed
+     */
+    private HashMap<D, ArrayList<String>> words = new HashMap<>();
+
+    /**
+     * Adds a piece of text to a document, adding the document if it is not indexed yet
+     *
+     * @param doc    The document
+     * @param text   The text, or null for none
+     * @param weight How much a word of this text counts for
+     */
+    public void add(D doc, String text, int weight) {
+        ArrayList<String> docWords = words.computeIfAbsent(doc, k -> new ArrayList<>());
+        for (String word : Tokenizer.tokens(text)) {
+            HashMap<D, Integer> docs = postings.computeIfAbsent(word, k -> new HashMap<>());
+            Integer old = docs.get(doc);
+            if (old == null) {
+                docWords.add(word);
+                docs.put(doc, weight);
+            } else {
+                docs.put(doc, Math.max(old, weight));
+            }
+        }
+    }
+
+    /**
+     * Removes a document and all of its text
+     *
+     * @param doc The document
+     */
+    public void remove(D doc) {
+        ArrayList<String> docWords = words.remove(doc);
+        if (docWords == null) {
+            return;
+        }
+        for (String word : docWords) {
+            HashMap<D, Integer> docs = postings.get(word);
+            docs.remove(doc);
+            if (docs.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    /**
+     * @return The number of documents indexed
+     */
+    public int size() {
+        return words.size();
+    }
+
+    /**
+     * @param query Words to search for. The last may be unfinished.
+     * @return The score of each document which matches every word of the query. Empty if the query has no words.
+     */
+    public HashMap<D, Double> search(String query) {
+        ArrayList<String> queryWords = Tokenizer.tokens(query);
+        if (queryWords.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        // Starting from the rarest word keeps the documents carried between words to the fewest
+        ArrayList<NavigableMap<String, HashMap<D, Integer>>> matches = new ArrayList<>();
+        for (String word : queryWords) {
+            matches.add(postings.subMap(word, true, word + Character.MAX_VALUE, true));
+        }
+        matches.sort(Comparator.comparingInt(TextIndex::postingCount));
+
+        HashMap<D, Double> scores = new HashMap<>();
+        for (Map.Entry<String, HashMap<D, Integer>> entry : matches.get(0).entrySet()) {
+            double scale = scale(entry.getKey(), queryWords, entry.getValue().size());
+            for (Map.Entry<D, Integer> doc : entry.getValue().entrySet()) {
+                scores.merge(doc.getKey(), doc.getValue() * scale, Math::max);
+            }
+        }
+        for (int i = 1; i < matches.size() && !scores.isEmpty(); i++) {
+            // Only the documents which matched every word so far are looked up
+            HashMap<D, Double> best = new HashMap<>();
+            for (Map.Entry<String, HashMap<D, Integer>> entry : matches.get(i).entrySet()) {
+                double scale = scale(entry.getKey(), queryWords, entry.getValue().size());
+                HashMap<D, Integer> docs = entry.getValue();
+                if (docs.size() < scores.size()) {
+                    for (Map.Entry<D, Integer> doc : docs.entrySet()) {
+                        if (scores.containsKey(doc.getKey())) {
+                            best.merge(doc.getKey(), doc.getValue() * scale, Math::max);
+                        }
+                    }
+                } else {
+                    for (D doc : scores.keySet()) {
+                        Integer weight = docs.get(doc);
+                        if (weight != null) {
+                            best.merge(doc, weight * scale, Math::max);
+                        }
+                    }
+                }
+            }
+            HashMap<D, Double> both = new HashMap<>();
+            for (Map.Entry<D, Double> entry : best.entrySet()) {
+                both.put(entry.getKey(), scores.get(entry.getKey()) + entry.getValue());
+            }
+            scores = both;
+        }
+        return scores;
+    }
+
+    /**
+     * @param word       An indexed word
+     * @param queryWords The words of the query
+     * @param documents  The number of documents with the word
+     * @return How much each unit of weight of the word counts for: less for words in many documents, and half for a
+     * word which only starts with a query word
+     */
+    private double scale(String word, ArrayList<String> queryWords, int documents) {
+        double scale = Math.log(1 + (double) words.size() / documents);
+        return queryWords.contains(word) ? scale : scale * PREFIX_MATCH;
+    }
+
+    /**
+     * @return The number of postings of all the words in a range of the index
+     */
+    private static <D> int postingCount(Map<String, HashMap<D, Integer>> range) {
+        int count = 0;
+        for (HashMap<D, Integer> docs : range.values()) {
+            count += docs.size();
+        }
+        return count;
+    }
+
+    /**
+     * @param scores The score of each document
+     * @param limit  The most documents to return
+     * @return The documents with the highest scores, highest first
+     */
+    public static <D> ArrayList<D> rank(Map<D, Double> scores, int limit) {
+        // Keeps the best limit entries seen so far with the worst of them on top
+        PriorityQueue<Map.Entry<D, Double>> best = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<D, Double> entry : scores.entrySet()) {
+            if (best.size() < limit) {
+                best.add(entry);
+            } else if (limit > 0 && entry.getValue() > best.peek().getValue()) {
+                best.poll();
+                best.add(entry);
+            }
+        }
+        ArrayList<D> ranked = new ArrayList<>();
+        while (!best.isEmpty()) {
+            ranked.add(best.poll().getKey());
+        }
+        Collections.reverse(ranked);
+        return ranked;
+    }
+}
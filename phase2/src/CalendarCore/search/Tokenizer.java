@@ -0,0 +1,35 @@
+package CalendarCore.search;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Splits text into the words which are indexed and searched for: runs of letters and digits, in lower case
+ */
+class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    /**
+     * @param text Some text, or null
+     * @return The words of the text in order, with repeats
+     */
+    static ArrayList<String> tokens(String text) {
+        ArrayList<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,85 @@
+package CalendarCore.users;
+
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A user in the save file. Until the user is needed it is kept as the bytes it was saved as, which may be a slice of
+ * the save file read into memory, so users who do not log in cost no time to decode and only their bytes on the heap.
+ */
+public class StoredUser {
+
+    /**
+     * Name of the user, known without reading the user
+     */
+    private String userName;
+
+    /**
+     * The user as written by User.write, or null once the user has been read
+     */
+    private ByteBuffer segment;
+
+    /**
+     * The user, or null until it is needed
+     */
+    private User user;
+
+    /**
+     * @param userName Name of the user
+     * @param segment  The user as written by User.write
+     */
+    public StoredUser(String userName, ByteBuffer segment) {
+        this.userName = userName;
+        this.segment = segment;
+    }
+
+    /**
+     * @param user A user which has already been read or was just created
+     */
+    public StoredUser(User user) {
+        this.userName = user.getUserName();
+        this.user = user;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * @return True iff the user has been read from its bytes
+     */
+    public boolean isLoaded() {
+        return user != null;
+    }
+
+    /**
+     * Reads the user from its bytes the first time it is needed
+     *
+     * @return The user
+     * @throws IOException if the bytes do not hold a user
+     */
+    public User getUser() throws IOException {
+        if (user == null) {
+            user = User.read(new BinaryReader(segment.duplicate()));
+            segment = null;
+        }
+        return user;
+    }
+
+    /**
+     * @return The user as written by User.write, copied from the bytes it was read from if it has not been read
+     */
+    public byte[] toSegment() {
+        if (user == null) {
+            byte[] bytes = new byte[segment.remaining()];
+            segment.duplicate().get(bytes);
+            return bytes;
+        }
+        BinaryWriter out = new BinaryWriter();
+        User.write(out, user);
+        return out.toByteArray();
+    }
+}
@@ -4,17 +4,31 @@ import CalendarCore.calendar.CalendarClock;
 import CalendarCore.calendar.CalendarSystem;
 import CalendarCore.dates.DateTime;
 import CalendarCore.events.Event;
+import CalendarCore.events.EventSystem;
 import CalendarCore.events.SeriesGenerator;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 
 import CalendarCore.exceptions.CalendarNotInTheSystemException;
 import CalendarCore.exceptions.CalendarInTheSystemException;
 import CalendarCore.exportcal.ExportCal;
+import CalendarCore.memos.MemoSystem;
+import CalendarCore.util.BinaryReader;
+import CalendarCore.util.BinaryWriter;
+import CalendarCore.util.LongHashSet;
 
 public class User implements Serializable {
 
+    /**
+     * Fixed so that users saved before the binary save format was added can still be read
+     */
+    private static final long serialVersionUID = -2804457396006577546L;
+
     /**
      * A list of CalendarSystem for the User
      */
@@ -34,6 +48,29 @@ public class User implements Serializable {
 
     private ExportCal exportCal = new ExportCal();
 
+    /**
+     * The calendars in listOfCalendarSystem by name, built from it when a calendar is first looked up by name. Where
+     * two calendars share a name the later one is kept.
+     */
+    private transient HashMap<String, CalendarSystem> calendarsByName;
+
+    /**
+     * True iff the user is in the save file or the journal, so only its changes need journaling. A user read from the
+     * save file is, a new one is not until it is first journaled.
+     */
+    private transient boolean saved;
+
+    /**
+     * The number of calendars created since the user was last journaled, at the end of listOfCalendarSystem
+     */
+    private transient int addedCalendars;
+
+    /**
+     * An empty User which is filled in by read
+     */
+    private User() {
+    }
+
     /**
      * Constructor for User Class
      * @param userName Name of the User
@@ -77,27 +114,39 @@ public class User implements Serializable {
             throw new CalendarInTheSystemException();
         }
         this.listOfCalendarSystem.add(calendarSystem);
+        addedCalendars++;
+        if (calendarsByName != null){
+            calendarsByName.put(calendarSystem.getNameOfCalendar(), calendarSystem);
+        }
     }
 
     /**
-     * Add a single event to a particular CalendarSystem of this user
-     * @param calendar the name of the calendar we want to add to
-     * @param e the event we want to add
+     * @param calendar the name of a calendar of this user
+     * @return the calendar. If several have the name, the last created.
      * @throws CalendarNotInTheSystemException if the calendar is not in the system
      */
-    public void addSingleEvent(String calendar, Event e) throws CalendarNotInTheSystemException{
-        CalendarSystem cal = new CalendarSystem("TemporaryWillBeDeleted");
-        boolean found = false;
-        for (CalendarSystem cals: listOfCalendarSystem){
-            if (cals.getNameOfCalendar().equals(calendar)){
-                cal = cals;
-                found = true;
+    public CalendarSystem getCalendar(String calendar) throws CalendarNotInTheSystemException{
+        if (calendarsByName == null){
+            calendarsByName = new HashMap<>();
+            for (CalendarSystem cals: listOfCalendarSystem){
+                calendarsByName.put(cals.getNameOfCalendar(), cals);
             }
         }
-        if (!found){
+        CalendarSystem cal = calendarsByName.get(calendar);
+        if (cal == null){
             throw new CalendarNotInTheSystemException();
         }
-        cal.addSingleEvent(e);
+        return cal;
+    }
+
+    /**
+     * Add a single event to a particular CalendarSystem of this user
+     * @param calendar the name of the calendar we want to add to
+     * @param e the event we want to add
+     * @throws CalendarNotInTheSystemException if the calendar is not in the system
+     */
+    public void addSingleEvent(String calendar, Event e) throws CalendarNotInTheSystemException{
+        getCalendar(calendar).addSingleEvent(e);
     }
 
     /**
@@ -107,19 +156,7 @@ public class User implements Serializable {
      * @throws CalendarNotInTheSystemException if the calendar is not in the System
      */
     public void addSeriesEvent(String calendar, SeriesGenerator g) throws CalendarNotInTheSystemException{
-        CalendarSystem cal = new CalendarSystem("TemporaryWillBeDeleted");
-        boolean found = false;
-        for (CalendarSystem cals: listOfCalendarSystem){
-            if (cals.getNameOfCalendar().equals(calendar)){
-                cal = cals;
-                found = true;
-            }
-        }
-        if (!found){
-            throw new CalendarNotInTheSystemException();
-        }
-
-        cal.addSeriesEvent(g);
+        getCalendar(calendar).addSeriesEvent(g);
     }
 
     private ArrayList<Event> getAllEvents(){
@@ -177,4 +214,153 @@ public class User implements Serializable {
     public void exportHour(DateTime date, String path){
         exportCal.exportHour(getAllEvents(), date, path);
     }
+
+    /**
+     * Writes a user in the binary save format
+     * @param out The writer
+     * @param u The user
+     */
+    public static void write(BinaryWriter out, User u){
+        out.writeString(u.userName);
+        out.writeString(u.password);
+        out.writeVarInt(u.listOfCalendarSystem.size());
+        for (CalendarSystem cs : u.listOfCalendarSystem){
+            CalendarSystem.write(out, cs);
+        }
+        CalendarSystem.write(out, u.defaultCalendar);
+    }
+
+    /**
+     * @param in The reader
+     * @return A user written by write
+     * @throws IOException if the reader does not hold one
+     */
+    public static User read(BinaryReader in) throws IOException{
+        User u = new User();
+        u.userName = in.readString();
+        u.password = in.readString();
+        int count = in.readVarInt();
+        for (int i = 0; i < count; i++){
+            u.listOfCalendarSystem.add(CalendarSystem.read(in));
+        }
+        u.defaultCalendar = CalendarSystem.read(in);
+        u.saved = true;
+        return u;
+    }
+
+    /**
+     * Writes what has changed in a user since this was last called, for the journal. A user which was never saved is
+     * written whole. Otherwise only the calendars created are written, and in every calendar the single events,
+     * series and statutory events with the ids added, edited or deleted or whose alerts changed in any of them,
+     * and the memos of the calendars whose memos changed.
+     * @param out The writer
+     * @param u The user
+     * @return true iff anything changed, otherwise nothing was written
+     */
+    public static boolean writeChanges(BinaryWriter out, User u){
+        LongHashSet seen = new LongHashSet();
+        ArrayList<Long> changedIds = new ArrayList<>();
+        boolean[] memosChanged = new boolean[u.listOfCalendarSystem.size()];
+        boolean anyMemosChanged = false;
+        for (int i = 0; i < memosChanged.length; i++){
+            CalendarSystem cs = u.listOfCalendarSystem.get(i);
+            for (long[] ids : List.of(cs.getEventSystem().takeChangedIds(), cs.getAlertSystem().takeChangedIds())){
+                for (long id : ids){
+                    if (seen.add(id)){
+                        changedIds.add(id);
+                    }
+                }
+            }
+            memosChanged[i] = cs.getMemoSystem().takeChanged();
+            anyMemosChanged |= memosChanged[i];
+        }
+
+        if (!u.saved){
+            out.writeBoolean(true);
+            write(out, u);
+            u.saved = true;
+            u.addedCalendars = 0;
+            return true;
+        }
+        if (changedIds.isEmpty() && u.addedCalendars == 0 && !anyMemosChanged){
+            return false;
+        }
+
+        out.writeBoolean(false);
+        int firstAdded = memosChanged.length - u.addedCalendars;
+        out.writeVarInt(firstAdded);
+        out.writeVarInt(u.addedCalendars);
+        for (int i = firstAdded; i < memosChanged.length; i++){
+            out.writeString(u.listOfCalendarSystem.get(i).getNameOfCalendar());
+        }
+        u.addedCalendars = 0;
+
+        long[] ids = new long[changedIds.size()];
+        out.writeVarInt(ids.length);
+        for (int i = 0; i < ids.length; i++){
+            ids[i] = changedIds.get(i);
+            out.writeVarLong(ids[i]);
+        }
+        for (int i = 0; i < memosChanged.length; i++){
+            CalendarSystem cs = u.listOfCalendarSystem.get(i);
+            EventSystem.writeChanges(out, cs.getEventSystem(), ids);
+            out.writeBoolean(memosChanged[i]);
+            if (memosChanged[i]){
+                MemoSystem.write(out, cs.getMemoSystem());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads changes written by writeChanges into a user. The changes to its events are only applied by applyChanges.
+     * A calendar created again, as when the journal is replayed over a save made after it, is left as it is.
+     * @param in The reader
+     * @param u The user, or null if it was not saved before
+     * @return The changed user, which is a new one if the changes hold the whole user
+     * @throws IOException if the reader does not hold changes to the user
+     */
+    public static User readChanges(BinaryReader in, User u) throws IOException{
+        if (in.readBoolean()){
+            return read(in);
+        }
+        if (u == null){
+            throw new StreamCorruptedException("Changes to a user which was never saved");
+        }
+
+        int firstAdded = in.readVarInt();
+        int added = in.readVarInt();
+        for (int i = firstAdded; i < firstAdded + added; i++){
+            String name = in.readString();
+            if (i > u.listOfCalendarSystem.size()){
+                throw new StreamCorruptedException("Missing calendar " + i);
+            }
+            if (i == u.listOfCalendarSystem.size()){
+                u.listOfCalendarSystem.add(new CalendarSystem(name));
+                u.calendarsByName = null;
+            }
+        }
+
+        long[] ids = new long[in.readVarInt()];
+        for (int i = 0; i < ids.length; i++){
+            ids[i] = in.readVarLong();
+        }
+        for (int i = 0; i < firstAdded + added; i++){
+            CalendarSystem cs = u.listOfCalendarSystem.get(i);
+            EventSystem.readChanges(in, cs.getEventSystem(), ids);
+            if (in.readBoolean()){
+                MemoSystem.replaceMemos(cs.getMemoSystem(), MemoSystem.read(in));
+            }
+        }
+        return u;
+    }
+
+    /**
+     * Applies the changes to the events of every calendar read by readChanges
+     */
+    public void applyChanges(){
+        for (CalendarSystem cs : listOfCalendarSystem){
+            cs.getEventSystem().applyChanges();
+        }
+    }
 }
@@ -1,49 +1,116 @@
 package CalendarCore.users;
 
+import CalendarCore.calendar.CalendarSystem;
 import CalendarCore.events.Event;
+import CalendarCore.events.EventSystem;
 import CalendarCore.events.SeriesGenerator;
 import CalendarCore.exceptions.CalendarNotInTheSystemException;
 import CalendarCore.exceptions.InvalidInputException;
 import CalendarCore.exceptions.UserExistsException;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 
 public class Users {
 
-    // The list of all users and all events respectively.
-    private ArrayList<User> allUsers;
+    // The list of all users, each of which is only read once it is needed.
+    private ArrayList<StoredUser> allUsers;
+
+    // The users in allUsers by name, so a user is found without looking at the others.
+    private HashMap<String, StoredUser> usersByName = new HashMap<>();
+
+    // The users which have changed since they were last saved.
+    private ArrayList<User> changedUsers = new ArrayList<>();
+
+    // The users in changedUsers, so marking a user as changed again does not scan the list.
+    private Set<User> changedSet = Collections.newSetFromMap(new IdentityHashMap<>());
 
     public Users(){
         allUsers = new ArrayList<>();
     }
 
 
-    public ArrayList<User> getAllUsers(){
+    public ArrayList<StoredUser> getAllUsers(){
         return allUsers;
     }
 
+    /**
+     * @return the names of all users, without reading any of them.
+     */
+    public ArrayList<String> getUserNames(){
+        ArrayList<String> names = new ArrayList<>();
+        for (StoredUser u: allUsers){
+            names.add(u.getUserName());
+        }
+        return names;
+    }
+
+    /**
+     * Reads a user if it has not been read yet
+     * @param username - username of the user.
+     * @return the user
+     * @throws InvalidInputException if there is no such user or it could not be read
+     */
+    public User getUser(String username) throws InvalidInputException {
+        StoredUser u = usersByName.get(username);
+        if (u == null){
+            throw new InvalidInputException();
+        }
+        try {
+            return u.getUser();
+        } catch (IOException e) {
+            System.out.println("Error reading saved user " + username + ".");
+            throw new InvalidInputException();
+        }
+    }
+
     public void createNewUser(User user) throws UserExistsException {
-        for (User u: allUsers){
-            if (user.getUserName().equals(u.getUserName())){
-                throw new UserExistsException();
-            }
+        if (usersByName.containsKey(user.getUserName())){
+            throw new UserExistsException();
         }
 
-        allUsers.add(user);
+        StoredUser stored = new StoredUser(user);
+        allUsers.add(stored);
+        usersByName.put(user.getUserName(), stored);
+        userChanged(user);
+    }
+
+    /**
+     * Marks a user as changed so that it is saved with the next changes
+     * @param user - the user which changed.
+     */
+    public void userChanged(User user) {
+        if (changedSet.add(user)) {
+            changedUsers.add(user);
+        }
     }
 
     /**
-     * Logs the user in
+     * @return the users which have changed since this was last called.
+     */
+    public ArrayList<User> takeChangedUsers() {
+        ArrayList<User> changed = changedUsers;
+        changedUsers = new ArrayList<>();
+        changedSet.clear();
+        return changed;
+    }
+
+    /**
+     * Logs the user in. Only this user is read from the save file.
      * @param username - username of the user.
      * @param password - password of the user.
      * @return A User instance
      * @throws InvalidInputException if the input is invalid
      */
     public User login(String username, String password) throws InvalidInputException {
-        for (User u:allUsers){
-            if(u.login(username, password)){
-                return u;
-            }
+        User u = getUser(username);
+        if(u.login(username, password)){
+            return u;
         }
         throw new InvalidInputException();
     }
@@ -58,8 +125,13 @@ public class Users {
         return username.length() >= 1 && password.length() >= 1;
     }
 
-    public void setAllUsers(ArrayList<User> allUsers) {
+    public void setAllUsers(ArrayList<StoredUser> allUsers) {
         this.allUsers = allUsers;
+        usersByName = new HashMap<>();
+        for (StoredUser u: allUsers){
+            // As when the list was scanned, the first user with a name is the one found
+            usersByName.putIfAbsent(u.getUserName(), u);
+        }
     }
 
 
@@ -74,20 +146,9 @@ public class Users {
      */
 
     public void addSingleEvent(String username, String calendar, Event e) throws CalendarNotInTheSystemException, InvalidInputException{
-        boolean shared = false;
-        for (User u: allUsers){
-            if (u.getUserName().equals(username)){
-                try {
-                    u.addSingleEvent(calendar, e);
-                    shared = true;
-                }catch (CalendarNotInTheSystemException e1){
-                    throw new CalendarNotInTheSystemException();
-                }
-            }
-        }
-        if (!shared){
-            throw new InvalidInputException();
-        }
+        User u = getUser(username);
+        u.addSingleEvent(calendar, e);
+        userChanged(u);
     }
 
     /**
@@ -99,20 +160,94 @@ public class Users {
      * @throws InvalidInputException if the user does not exist
      */
     public void addSeriesEvent(String username, String calendar, SeriesGenerator sg) throws CalendarNotInTheSystemException, InvalidInputException{
-        boolean shared = false;
-        for (User u: allUsers){
-            if (u.getUserName().equals(username)){
-                try {
-                    u.addSeriesEvent(calendar, sg);
-                    shared = true;
-                }catch (CalendarNotInTheSystemException e1){
-                    throw new CalendarNotInTheSystemException();
+        User u = getUser(username);
+        u.addSeriesEvent(calendar, sg);
+        userChanged(u);
+    }
+
+    /**
+     * add a single event to many users' calendars at once
+     * @param calendars the names of the calendars to share the event to, by the username of their user
+     * @param e the event you want to share
+     * @throws CalendarNotInTheSystemException if a calendar name is not valid, in which case it is shared to no one
+     * @throws InvalidInputException if a user does not exist, in which case it is shared to no one
+     */
+    public void addSingleEvent(Map<String, ArrayList<String>> calendars, Event e) throws CalendarNotInTheSystemException, InvalidInputException{
+        for (CalendarSystem cal : findCalendars(calendars)){
+            cal.addSingleEvent(e);
+        }
+    }
+
+    /**
+     * add a series event to many users' calendars at once
+     * @param calendars the names of the calendars to share the event to, by the username of their user
+     * @param sg the series generator of the series event you want to share
+     * @throws CalendarNotInTheSystemException if a calendar name is not valid, in which case it is shared to no one
+     * @throws InvalidInputException if a user does not exist, in which case it is shared to no one
+     */
+    public void addSeriesEvent(Map<String, ArrayList<String>> calendars, SeriesGenerator sg) throws CalendarNotInTheSystemException, InvalidInputException{
+        for (CalendarSystem cal : findCalendars(calendars)){
+            cal.addSeriesEvent(sg);
+        }
+    }
+
+    /**
+     * Finds every event system holding an event, such as one shared between calendars or users, so that it can be
+     * changed in all of them at once. Users which have not been read yet only hold saved copies of their events.
+     * The users of the event systems are marked as changed.
+     * @param e a single event or series template
+     * @return the event systems holding e, each once
+     */
+    public ArrayList<EventSystem> findEventSystems(Event e){
+        ArrayList<EventSystem> holders = new ArrayList<>();
+        for (StoredUser stored : allUsers){
+            if (!stored.isLoaded()){
+                continue;
+            }
+            User u;
+            try {
+                u = stored.getUser();
+            } catch (IOException ex) {
+                // A user which has been read is not read again
+                continue;
+            }
+            boolean holds = false;
+            for (CalendarSystem cal : u.getListOfCalendarSystem()){
+                EventSystem es = cal.getEventSystem();
+                if (es.holds(e) && !holders.contains(es)){
+                    holders.add(es);
+                    holds = true;
                 }
             }
+            if (holds){
+                userChanged(u);
+            }
         }
-        if (!shared){
-            throw new InvalidInputException();
+        return holders;
+    }
+
+    /**
+     * Finds every calendar to share to before any is changed, and marks their users as changed
+     * @param calendars the names of the calendars, by the username of their user
+     * @return the calendars, each once
+     */
+    private ArrayList<CalendarSystem> findCalendars(Map<String, ArrayList<String>> calendars) throws CalendarNotInTheSystemException, InvalidInputException{
+        ArrayList<User> found = new ArrayList<>();
+        Set<CalendarSystem> targets = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayList<CalendarSystem> result = new ArrayList<>();
+        for (Map.Entry<String, ArrayList<String>> entry : calendars.entrySet()){
+            User u = getUser(entry.getKey());
+            found.add(u);
+            for (String calendar : entry.getValue()){
+                CalendarSystem cal = u.getCalendar(calendar);
+                if (targets.add(cal)){
+                    result.add(cal);
+                }
+            }
+        }
+        for (User u : found){
+            userChanged(u);
         }
+        return result;
     }
 }
-
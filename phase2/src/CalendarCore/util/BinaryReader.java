@@ -0,0 +1,204 @@
+package CalendarCore.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Reads values written by BinaryWriter, in the same order they were written.
+ */
+public class BinaryReader {
+
+    /**
+     * Returned by readReference when the object has not been read before and follows the reference.
+     * The caller must create it, register it and then read it.
+     */
+    public static final Object NEW = new Object();
+
+    /**
+     * The bytes to read, from its position up to its limit
+     */
+    private ByteBuffer bytes;
+
+    /**
+     * The strings read so far, in the order they were numbered
+     */
+    private ArrayList<String> strings = new ArrayList<>();
+
+    /**
+     * The objects read so far, in the order they were numbered
+     */
+    private ArrayList<Object> references = new ArrayList<>();
+
+    /**
+     * Whether the object announced by the last readReference is still to be registered
+     */
+    private boolean awaitingRegister;
+
+    /**
+     * @param bytes The bytes to read
+     */
+    public BinaryReader(byte[] bytes) {
+        this(bytes, 0);
+    }
+
+    /**
+     * @param bytes    The bytes to read
+     * @param position The index of the first byte to read
+     */
+    public BinaryReader(byte[] bytes, int position) {
+        this(ByteBuffer.wrap(bytes, position, bytes.length - position));
+    }
+
+    /**
+     * Reads from a buffer, such as a slice of the save file read by SaveHandler, without copying it
+     *
+     * @param bytes The bytes to read, from its position up to its limit. Reading moves its position.
+     */
+    public BinaryReader(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return True iff every byte has been read
+     */
+    public boolean atEnd() {
+        return !bytes.hasRemaining();
+    }
+
+    /**
+     * @return The index in the buffer of the next byte to read
+     */
+    public int position() {
+        return bytes.position();
+    }
+
+    public int readByte() throws IOException {
+        if (!bytes.hasRemaining()) {
+            throw new EOFException();
+        }
+        return bytes.get() & 0xFF;
+    }
+
+    /**
+     * @param length The number of bytes to read
+     * @return The bytes
+     * @throws IOException if there are fewer than length bytes left
+     */
+    public byte[] readBytes(int length) throws IOException {
+        if (length < 0 || length > bytes.remaining()) {
+            throw new EOFException();
+        }
+        byte[] b = new byte[length];
+        bytes.get(b);
+        return b;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    /**
+     * @return An int written with writeVarInt
+     * @throws IOException if the bytes do not hold one
+     */
+    public int readVarInt() throws IOException {
+        long n = readUnsignedVarLong();
+        if (n < 0 || n > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("Count out of range: " + n);
+        }
+        return (int) n;
+    }
+
+    /**
+     * @return A long written with writeVarLong
+     * @throws IOException if the bytes do not hold one
+     */
+    public long readVarLong() throws IOException {
+        long n = readUnsignedVarLong();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private long readUnsignedVarLong() throws IOException {
+        long n = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            n |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return n;
+            }
+        }
+        throw new StreamCorruptedException("Varint too long");
+    }
+
+    /**
+     * @return A string written with writeString. May be null.
+     * @throws IOException if the bytes do not hold one
+     */
+    public String readString() throws IOException {
+        int number = readVarInt();
+        if (number == 0) {
+            return null;
+        }
+        if (number <= strings.size()) {
+            return strings.get(number - 1);
+        }
+        if (number != strings.size() + 1) {
+            throw new StreamCorruptedException("Unknown string " + number);
+        }
+        String s = new String(readBytes(readVarInt()), StandardCharsets.UTF_8);
+        strings.add(s);
+        return s;
+    }
+
+    /**
+     * Reads a reference written with writeReference
+     *
+     * @return null, an object read before, or NEW if the object follows. After NEW the caller must create the object
+     * and pass it to register before reading anything else which may refer to it.
+     * @throws IOException if the bytes do not hold a reference
+     */
+    public Object readReference() throws IOException {
+        if (awaitingRegister) {
+            throw new IllegalStateException("The last new object was not registered");
+        }
+        int number = readVarInt();
+        if (number == 0) {
+            return null;
+        }
+        if (number <= references.size()) {
+            return references.get(number - 1);
+        }
+        if (number != references.size() + 1) {
+            throw new StreamCorruptedException("Unknown reference " + number);
+        }
+        awaitingRegister = true;
+        return NEW;
+    }
+
+    /**
+     * Numbers the object announced by the last readReference so that later references read as it
+     *
+     * @param o The new object
+     */
+    public void register(Object o) {
+        references.add(o);
+        awaitingRegister = false;
+    }
+
+    /**
+     * @param o    An object returned by readReference
+     * @param type The type it must be
+     * @return o as a type
+     * @throws IOException if o is not a type
+     */
+    public static <T> T cast(Object o, Class<T> type) throws IOException {
+        if (o != null && !type.isInstance(o)) {
+            throw new StreamCorruptedException("Expected " + type.getSimpleName());
+        }
+        return type.cast(o);
+    }
+}
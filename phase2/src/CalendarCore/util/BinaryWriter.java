@@ -0,0 +1,143 @@
+package CalendarCore.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Writes values in a compact binary form read back by BinaryReader.
+ * <p>
+ * Integers are written as varints, so small numbers take a single byte. Every distinct string is written once and
+ * afterwards referred to by its number, and objects written with writeReference are written once and afterwards
+ * referred to by their number, which keeps objects shared between several owners shared when they are read back.
+ */
+public class BinaryWriter {
+
+    /**
+     * The bytes written so far
+     */
+    private byte[] bytes = new byte[256];
+
+    /**
+     * The number of bytes written so far
+     */
+    private int size;
+
+    /**
+     * The number of each string already written, starting from 1
+     */
+    private HashMap<String, Integer> strings = new HashMap<>();
+
+    /**
+     * The number of each object already written with writeReference, starting from 1
+     */
+    private IdentityHashMap<Object, Integer> references = new IdentityHashMap<>();
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+
+    /**
+     * @param b The byte to write
+     */
+    public void writeByte(int b) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) b;
+    }
+
+    /**
+     * @param b The bytes to write
+     */
+    public void writeBytes(byte[] b) {
+        ensureCapacity(b.length);
+        System.arraycopy(b, 0, bytes, size, b.length);
+        size += b.length;
+    }
+
+    public void writeBoolean(boolean b) {
+        writeByte(b ? 1 : 0);
+    }
+
+    /**
+     * Writes an int which is never negative, such as a count, in 1 to 5 bytes
+     *
+     * @param n The int to write. Precondition: n >= 0
+     */
+    public void writeVarInt(int n) {
+        writeUnsignedVarLong(n);
+    }
+
+    /**
+     * Writes a long in 1 to 10 bytes, fewer the closer it is to 0
+     *
+     * @param n The long to write
+     */
+    public void writeVarLong(long n) {
+        // Zig-zag encoding maps small negative numbers to small positive ones
+        writeUnsignedVarLong((n << 1) ^ (n >> 63));
+    }
+
+    private void writeUnsignedVarLong(long n) {
+        ensureCapacity(10);
+        while ((n & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        bytes[size++] = (byte) n;
+    }
+
+    /**
+     * Writes a string, or only its number if it has been written before
+     *
+     * @param s The string to write. May be null.
+     */
+    public void writeString(String s) {
+        if (s == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer number = strings.get(s);
+        if (number != null) {
+            writeVarInt(number);
+            return;
+        }
+        // The next unused number tells the reader that the string itself follows
+        strings.put(s, strings.size() + 1);
+        writeVarInt(strings.size());
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(utf8.length);
+        writeBytes(utf8);
+    }
+
+    /**
+     * Writes a reference to an object. The first reference to an object must be followed by the object itself, any
+     * later references are read back as the same object.
+     *
+     * @param o The object. May be null.
+     * @return True iff o is not null and has not been written before, so it must be written next
+     */
+    public boolean writeReference(Object o) {
+        if (o == null) {
+            writeVarInt(0);
+            return false;
+        }
+        Integer number = references.get(o);
+        if (number != null) {
+            writeVarInt(number);
+            return false;
+        }
+        references.put(o, references.size() + 1);
+        writeVarInt(references.size());
+        return true;
+    }
+
+    /**
+     * @return A copy of the bytes written so far
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+}
@@ -0,0 +1,182 @@
+package CalendarCore.util;
+
+/**
+ * A hash map from primitive longs to objects. Keys are stored unboxed in an open addressing table with linear
+ * probing, so looking up an id does not allocate a Long.
+ *
+ * @param <V> The type of the values
+ */
+public class LongHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The keys of the table. A slot is only in use if used is true for it.
+     */
+    private long[] keys;
+
+    /**
+     * The values of the table, in the same slots as their keys
+     */
+    private Object[] values;
+
+    /**
+     * used[i] is true iff slot i holds a key
+     */
+    private boolean[] used;
+
+    /**
+     * The number of keys in the map
+     */
+    private int size;
+
+    public LongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of keys the map should hold before it has to grow
+     */
+    public LongHashMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity / 2 < expectedSize) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+    }
+
+    /**
+     * @return The slot a key is first looked for in
+     */
+    private int slot(long key) {
+        // Spreads the bits of the key so that keys differing only in high bits do not collide
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+    }
+
+    /**
+     * @return The slot holding key, or the empty slot where it would be inserted
+     */
+    private int find(long key) {
+        int i = slot(key);
+        while (used[i] && keys[i] != key) {
+            i = (i + 1) & (keys.length - 1);
+        }
+        return i;
+    }
+
+    /**
+     * @param key The key
+     * @return The value of key, or null if key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = find(key);
+        return used[i] ? (V) values[i] : null;
+    }
+
+    /**
+     * @param key The key
+     * @return True iff key is in the map
+     */
+    public boolean containsKey(long key) {
+        return used[find(key)];
+    }
+
+    /**
+     * Maps key to value, replacing any value key already had
+     *
+     * @param key   The key
+     * @param value The value
+     * @return The previous value of key, or null if it had none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int i = find(key);
+        if (used[i]) {
+            V previous = (V) values[i];
+            values[i] = value;
+            return previous;
+        }
+        used[i] = true;
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        // Keeps the table at most half full so probe sequences stay short
+        if (size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @param key The key to remove
+     * @return The value key had, or null if key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = find(key);
+        if (!used[i]) {
+            return null;
+        }
+        V previous = (V) values[i];
+        used[i] = false;
+        values[i] = null;
+        size--;
+
+        // Moves later keys of the same probe sequence back into the gap so that find never stops early
+        int mask = keys.length - 1;
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (used[j]) {
+            int home = slot(keys[j]);
+            // The key at j may fill the gap iff its home slot is not cyclically within (gap, j]
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                used[gap] = true;
+                used[j] = false;
+                values[j] = null;
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        return previous;
+    }
+
+    /**
+     * @return The number of keys in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every key from the map
+     */
+    public void clear() {
+        allocate(keys.length);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int j = find(oldKeys[i]);
+                used[j] = true;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
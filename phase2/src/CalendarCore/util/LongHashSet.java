@@ -0,0 +1,164 @@
+package CalendarCore.util;
+
+/**
+ * A hash set of primitive longs. Elements are stored unboxed in an open addressing table with linear probing, like
+ * LongHashMap, so adding or looking up an id does not allocate a Long.
+ */
+public class LongHashSet {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The elements of the table. A slot is only in use if used is true for it.
+     */
+    private long[] elements;
+
+    /**
+     * used[i] is true iff slot i holds an element
+     */
+    private boolean[] used;
+
+    /**
+     * The number of elements in the set
+     */
+    private int size;
+
+    public LongHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of elements the set should hold before it has to grow
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity / 2 < expectedSize) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        elements = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    /**
+     * @return The slot an element is first looked for in
+     */
+    private int slot(long element) {
+        // Spreads the bits of the element so that elements differing only in high bits do not collide
+        long h = element * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (elements.length - 1);
+    }
+
+    /**
+     * @return The slot holding element, or the empty slot where it would be inserted
+     */
+    private int find(long element) {
+        int i = slot(element);
+        while (used[i] && elements[i] != element) {
+            i = (i + 1) & (elements.length - 1);
+        }
+        return i;
+    }
+
+    /**
+     * @param element The element
+     * @return True iff element is in the set
+     */
+    public boolean contains(long element) {
+        return used[find(element)];
+    }
+
+    /**
+     * @param element The element to add
+     * @return True iff element was not in the set already
+     */
+    public boolean add(long element) {
+        int i = find(element);
+        if (used[i]) {
+            return false;
+        }
+        used[i] = true;
+        elements[i] = element;
+        size++;
+        // Keeps the table at most half full so probe sequences stay short
+        if (size * 2 > elements.length) {
+            resize(elements.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @param element The element to remove
+     * @return True iff element was in the set
+     */
+    public boolean remove(long element) {
+        int i = find(element);
+        if (!used[i]) {
+            return false;
+        }
+        used[i] = false;
+        size--;
+
+        // Moves later elements of the same probe sequence back into the gap so that find never stops early
+        int mask = elements.length - 1;
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (used[j]) {
+            int home = slot(elements[j]);
+            // The element at j may fill the gap iff its home slot is not cyclically within (gap, j]
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                elements[gap] = elements[j];
+                used[gap] = true;
+                used[j] = false;
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of elements in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The elements of the set, in no particular order
+     */
+    public long[] toArray() {
+        long[] array = new long[size];
+        int n = 0;
+        for (int i = 0; i < elements.length; i++) {
+            if (used[i]) {
+                array[n++] = elements[i];
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Removes every element from the set
+     */
+    public void clear() {
+        allocate(elements.length);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldElements = elements;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldElements.length; i++) {
+            if (oldUsed[i]) {
+                int j = find(oldElements[i]);
+                used[j] = true;
+                elements[j] = oldElements[i];
+            }
+        }
+    }
+}
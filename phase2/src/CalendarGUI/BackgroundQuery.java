@@ -0,0 +1,92 @@
+package CalendarGUI;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs queries on calendars off the JavaFX application thread and hands their results back to it, so drawing a
+ * large calendar does not freeze the window.
+ * <p>
+ * Queries run one at a time on a single background thread, in the order they were asked for. EventSystem and
+ * AlertSystem are synchronized, so they can be edited on the JavaFX thread while they are queried.
+ */
+public class BackgroundQuery {
+
+    private static final ExecutorService QUERIES = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Calendar queries");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The last query run by replace, unless it has delivered its result
+     */
+    private Future<?> pending;
+
+    /**
+     * Counts the queries run by replace. Only the result of the latest is delivered.
+     */
+    private int generation;
+
+    /**
+     * Runs a query in the background in place of the last one this was asked to run. The last query is cancelled if
+     * it has not started, and its result is dropped if it has. Must be called on the JavaFX thread.
+     *
+     * @param query    The query, which must not touch the scene
+     * @param onResult Given the result on the JavaFX thread
+     */
+    public <T> void replace(Supplier<T> query, Consumer<T> onResult) {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        int current = ++generation;
+        pending = QUERIES.submit(() -> {
+            T result = run(query);
+            Platform.runLater(() -> {
+                if (current == generation) {
+                    pending = null;
+                    onResult.accept(result);
+                }
+            });
+        });
+    }
+
+    /**
+     * Stops the last query run by replace from delivering its result
+     */
+    public void cancel() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        generation++;
+    }
+
+    /**
+     * Runs a query in the background and always delivers its result. Results are delivered in the order the
+     * queries were submitted.
+     *
+     * @param query    The query, which must not touch the scene
+     * @param onResult Given the result on the JavaFX thread
+     */
+    public static <T> void submit(Supplier<T> query, Consumer<T> onResult) {
+        QUERIES.execute(() -> {
+            T result = run(query);
+            Platform.runLater(() -> onResult.accept(result));
+        });
+    }
+
+    private static <T> T run(Supplier<T> query) {
+        try {
+            return query.get();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            throw e;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import CalendarCore.Searcher;
 import CalendarCore.alerts.Alert;
 import CalendarCore.calendar.CalendarClock;
 import CalendarCore.calendar.CalendarSystem;
+import CalendarCore.metrics.Metrics;
 import CalendarCore.users.User;
 import CalendarCore.users.Users;
 import CalendarGUI.alerts.AlertTrackerGui;
@@ -15,6 +16,8 @@ import CalendarGUI.miscellaneous.ClockGui;
 import CalendarGUI.miscellaneous.SearchGui;
 import CalendarGUI.theme.Theme;
 import CalendarGUI.userHandling.LoginGui;
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -25,8 +28,10 @@ import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Observable;
@@ -46,6 +51,21 @@ public class CalGui extends Application implements Observer {
 
     private SaveHandler saveHandler;
 
+    /**
+     * Changes are saved this long after the first of them, so a burst of edits is saved once
+     */
+    private static final Duration AUTOSAVE_DELAY = Duration.seconds(2);
+
+    /**
+     * The system property naming a file the metrics are written to when the application closes
+     */
+    private static final String METRICS_DUMP_PROPERTY = "calendar.metrics.dump";
+
+    /**
+     * Saves the changes made since it was started once it finishes
+     */
+    private PauseTransition autosave;
+
     private Stage primaryStage;
     private Scene scene;
 
@@ -54,6 +74,9 @@ public class CalGui extends Application implements Observer {
         this.primaryStage = primaryStage;
         this.clock = new CalendarClock();
 
+        // Lets JMX clients such as JConsole watch the metrics while the application runs
+        Metrics.registerMBean();
+
         // Catches close requests and calls our close methods instead
         primaryStage.setOnCloseRequest(e -> close());
 
@@ -72,10 +95,13 @@ public class CalGui extends Application implements Observer {
             colorCalenderMap = new HashMap<>();
         }
 
-        // Loads the saved list of users
+        // Loads the saved list of users, leaving each user unread until it logs in
         saveHandler.setUserPath("data/savedUsers.ser");
         users.setAllUsers(saveHandler.readUserFile());
 
+        autosave = new PauseTransition(AUTOSAVE_DELAY);
+        autosave.setOnFinished(e -> saveChanges());
+
         startLoginScene();
 
         primaryStage.show();
@@ -85,11 +111,33 @@ public class CalGui extends Application implements Observer {
      * Saves the data to an external file and then closes the window
      */
     public void close() {
+        // Journals the last changes first so that the journal agrees with the full save if it is not emptied
+        autosave.stop();
+        saveChanges();
         saveHandler.saveUserFile(users.getAllUsers());
         saveHandler.saveColorFile(colorCalenderMap);
+
+        String metricsPath = System.getProperty(METRICS_DUMP_PROPERTY);
+        if (metricsPath != null) {
+            try {
+                Metrics.dump(metricsPath);
+            } catch (IOException e) {
+                System.out.println("Error writing metrics to file.");
+            }
+        }
         primaryStage.close();
     }
 
+    /**
+     * Journals the users which have changed, so that a crash does not lose them. They are written in the background.
+     */
+    private void saveChanges() {
+        if (currentUser != null) {
+            users.userChanged(currentUser);
+        }
+        saveHandler.saveChangedUsers(users.takeChangedUsers());
+    }
+
     /**
      * The login panel
      */
@@ -103,6 +151,9 @@ public class CalGui extends Application implements Observer {
      * The main calender panel
      */
     public void startCalenderScene() {
+        // Saves any users created at the login screen
+        saveChanges();
+
         // The pane which holds all of the different gui nodes
         bp = new BorderPane();
 
@@ -333,6 +384,11 @@ public class CalGui extends Application implements Observer {
      * @param arg the Datetime objects
      */
     public void update(Observable o, Object arg) {
+        // Saves the changes soon, along with any made before then
+        users.userChanged(currentUser);
+        if (autosave.getStatus() != Animation.Status.RUNNING) {
+            autosave.playFromStart();
+        }
         bp.setCenter(evg.drawEvents(clock.getTime(), "month"));
         bp.setRight(drawRight(searcher));
     }
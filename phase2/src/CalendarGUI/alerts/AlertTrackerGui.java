@@ -3,6 +3,8 @@ package CalendarGUI.alerts;
 import CalendarCore.alerts.Alert;
 import CalendarCore.calendar.CalendarSystem;
 import CalendarCore.dates.DateTime;
+import CalendarCore.events.EventSystem;
+import CalendarGUI.BackgroundQuery;
 import CalendarGUI.theme.Theme;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -50,7 +52,7 @@ public class AlertTrackerGui implements Observer {
 
     @Override
     /**
-     * Checks for any alerts in that tick (start to end)
+     * Checks for any alerts in that tick (start to end) in the background and shows them once they are found
      * @param 0 the observable to observe
      * @param arg the Datetime objects to observe at
      */
@@ -58,15 +60,23 @@ public class AlertTrackerGui implements Observer {
         DateTime[] times = (DateTime[]) arg;
         DateTime start = times[0];
         DateTime end = times[1];
+        ArrayList<CalendarSystem> shown = new ArrayList<>(calendarSystems);
 
-        ArrayList<Alert> alerts = new ArrayList<>();
-        for (CalendarSystem cs : calendarSystems) {
-            alerts.addAll(cs.getAlertSystem().getAlerts(cs.getEventSystem().getListOfEvents(),
-                    cs.getEventSystem().getListOfGenerators(), start, end));
-        }
-
-        for (Alert a : alerts) {
-            alertPopup(a);
-        }
+        // Every tick is checked, in order, so no alert is missed or shown twice
+        BackgroundQuery.submit(() -> {
+            ArrayList<Alert> alerts = new ArrayList<>();
+            for (CalendarSystem cs : shown) {
+                EventSystem es = cs.getEventSystem();
+                synchronized (es) {
+                    alerts.addAll(cs.getAlertSystem().getDueAlerts(es.getListOfEvents(), es.getListOfGenerators(),
+                            start, end));
+                }
+            }
+            return alerts;
+        }, alerts -> {
+            for (Alert a : alerts) {
+                alertPopup(a);
+            }
+        });
     }
 }
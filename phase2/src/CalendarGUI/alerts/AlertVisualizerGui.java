@@ -15,23 +15,15 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.util.ArrayList;
 
 public class AlertVisualizerGui {
     private Event event;
     private AlertSystem aSys;
-    private ArrayList<Alert> alertList;
     private VBox aList;
 
     public AlertVisualizerGui(AlertSystem aSys, Event event) {
         this.aSys = aSys;
         this.event = event;
-
-        if (event == null) {
-            this.alertList = new ArrayList<>();
-        } else {
-            this.alertList = event.getAlerts();
-        }
     }
 
     /**
@@ -66,14 +58,25 @@ public class AlertVisualizerGui {
     private void updateAlertVisualization() {
         aList.getChildren().clear();
 
-        for (Alert alert : alertList) {
-            Label t = new Label(alert.toString());
-            t.setOnMouseClicked(e -> {
-                createAlert(alert);
-                updateAlertVisualization();
-            });
-            t.setOnMouseEntered(e -> t.setCursor(Cursor.OPEN_HAND));
-            aList.getChildren().add(t);
+        if (event != null) {
+            for (Alert alert : event.getAlerts()) {
+                Label t = new Label(alert.toString());
+                t.setOnMouseClicked(e -> {
+                    createAlert(alert);
+                    updateAlertVisualization();
+                });
+                t.setOnMouseEntered(e -> t.setCursor(Cursor.OPEN_HAND));
+                aList.getChildren().add(t);
+            }
+            for (AlertGenerator generator : event.getAlertGenerators()) {
+                Label t = new Label(generator.toString());
+                t.setOnMouseClicked(e -> {
+                    createAlert(generator);
+                    updateAlertVisualization();
+                });
+                t.setOnMouseEntered(e -> t.setCursor(Cursor.OPEN_HAND));
+                aList.getChildren().add(t);
+            }
         }
     }
 
@@ -83,6 +86,34 @@ public class AlertVisualizerGui {
      * @param alerts 0 or 1 alert. 0 = New alert Creation. 1 = Editing
      */
     private void createAlert(Alert... alerts) {
+        if (alerts.length == 1) {
+            Alert a = alerts[0];
+            alertPopup(a.getMessage(), a.getTime(), null, () -> aSys.removeAlert(event, a));
+        } else {
+            alertPopup(null, null, null, null);
+        }
+    }
+
+    /**
+     * The Alert Creation popup for editing a countdown alert
+     *
+     * @param generator The countdown alert
+     */
+    private void createAlert(AlertGenerator generator) {
+        alertPopup(generator.getMessage(), generator.getStart(), generator.getFrequency(),
+                () -> aSys.removeSeriesAlert(event, generator));
+    }
+
+    /**
+     * The Alert Creation popup
+     *
+     * @param oldMessage   The message of the alert being edited, null for a new alert
+     * @param oldStart     The time of the alert being edited
+     * @param oldFrequency The frequency of the countdown alert being edited, null if it is a single alert
+     * @param onDelete     Deletes the alert being edited, null for a new alert
+     */
+    private void alertPopup(String oldMessage, DateTime oldStart, AlertGenerator.FREQUENCY oldFrequency,
+                            Runnable onDelete) {
         Stage stage = new Stage();
 
         VBox vBox = new VBox();
@@ -176,22 +207,32 @@ public class AlertVisualizerGui {
             stage.close();
         });
 
-        // A delete button which is only visible if the event has already been created (alerts.length == 1)
+        // A delete button which is only visible if an existing alert is being edited
         Button delete = new Button("Delete");
         delete.setStyle("-fx-text-fill: red");
         delete.setOnAction(e -> {
-            event.getAlerts().remove(alerts[0]);
+            onDelete.run();
             stage.close();
         });
 
         vBox.getChildren().addAll(messageHBox, dateHBox, radioButtons, save);
 
         // Editing an alert
-        if (alerts.length == 1) {
-            Alert a = alerts[0];
-            message.setText(a.getMessage());
-            start[0] = a.getTime();
+        if (onDelete != null) {
+            message.setText(oldMessage);
+            start[0] = oldStart;
             date.setText(start[0].toString());
+            if (oldFrequency != null) {
+                series.setSelected(true);
+                tDate.setText("Start Time");
+                vBox.getChildren().add(freqHBox);
+                for (Toggle toggle : frequency.getToggles()) {
+                    RadioButton button = (RadioButton) toggle;
+                    button.setSelected(button.getText().equalsIgnoreCase(oldFrequency.toString()));
+                }
+            } else {
+                single.setSelected(true);
+            }
             vBox.getChildren().add(delete);
         }
 
@@ -4,6 +4,7 @@ import CalendarCore.calendar.CalendarClock;
 import CalendarCore.calendar.CalendarSystem;
 import CalendarCore.dates.DateTime;
 import CalendarCore.events.Event;
+import CalendarCore.events.EventSystem;
 import CalendarCore.events.SeriesEvent;
 import CalendarCore.events.SeriesGenerator;
 import CalendarCore.exceptions.EventNotInSystemException;
@@ -86,7 +87,8 @@ public class EventCreationGui extends Observable {
         this.calendarSystems = calendarSystems;
         // All users have a default calender
         currentCalendar = calendarSystems.get(0);
-        this.event = event;
+        // An occurrence of a series is a view of its template, so alerts, memos and shares act on a copy of it
+        this.event = event.materialize();
 
         // Checks is there is an individual event versus having a series created byt a generator
         if (event instanceof SeriesEvent && ((SeriesEvent) event).getGenerator() != null) {
@@ -94,14 +96,14 @@ public class EventCreationGui extends Observable {
             eventTitle = sGen.getTemplate().getTitle();
             start = sGen.getCreatedOn();
             end = sGen.getEndDate();
-            tagList = sGen.getTemplate().getTags();
+            tagList = new ArrayList<>(sGen.getTemplate().getTags());
 
             seriesEvent();
         } else {
             eventTitle = event.getTitle();
             start = event.getStart();
             end = event.getEnd();
-            tagList = event.getTags();
+            tagList = new ArrayList<>(event.getTags());
 
             singleEvent();
         }
@@ -194,7 +196,6 @@ public class EventCreationGui extends Observable {
         save.setOnMouseClicked(e -> {
             this.eventTitle = titleField.getText();
 
-            this.tagList.clear();
             this.tagList = new ArrayList<>(Arrays.asList(tagField.getText().split(",(\\s)*")));
 
             if (isEditing) {
@@ -218,7 +219,7 @@ public class EventCreationGui extends Observable {
             }
 
             SeriesEvent temp = event.toSeries(seriesName.getText());
-            temp.getTags().addAll(Arrays.asList(tagField.getText().split(",(\\s)*")));
+            temp.addTags(new ArrayList<>(Arrays.asList(tagField.getText().split(",(\\s)*"))));
             try {
                 currentCalendar.getEventSystem().deleteEvent(event.getId(), currentCalendar.getMemoSystem());
             } catch (EventNotInSystemException ex) {
@@ -631,7 +632,7 @@ public class EventCreationGui extends Observable {
         // Adds tags to the generator's template
         try {
             SeriesGenerator sg = currentCalendar.getEventSystem().getGeneratorByID(id);
-            sg.getTemplate().addTags(tagList);
+            currentCalendar.getEventSystem().setTags(sg.getTemplate(), tagList);
         } catch (InvalidInputException e) {
             // Fail silently
         }
@@ -642,32 +643,21 @@ public class EventCreationGui extends Observable {
      * Creates a new Event
      */
     private void createSingleEvent() {
-        // Creates a new event and returns its id number
-        long id = currentCalendar.getEventSystem().createSingleEvent(eventTitle, start, end);
-
-        Event e = currentCalendar.getEventSystem().getEventByID(id);
-        e.getTags().clear();
-        e.addTags(tagList);
+        // Creates a new event with its tags
+        currentCalendar.getEventSystem().createSingleEvent(eventTitle, start, end, tagList);
     }
 
     /**
      * Saves a SeriesEvent
      */
     private void saveSeriesEvent() {
+        // Every calendar holding the series is locked while it changes, so background queries never see it half done
         SeriesGenerator sGen = ((SeriesEvent) event).getGenerator();
-        sGen.getTemplate().setTitle(eventTitle);
-        sGen.getTemplate().setStart(start);
-        sGen.getTemplate().setEnd(end);
-        sGen.setFrequency(frequency);
-
-        Event template = sGen.getTemplate();
-        template.getTags().clear();
-        template.addTags(tagList);
-
+        ArrayList<EventSystem> holders = users.findEventSystems(sGen.getTemplate());
         if (endsAfterCount) {
-            sGen.setEndCount(count);
+            EventSystem.editSeries(holders, sGen, eventTitle, start, end, frequency, tagList, count);
         } else {
-            sGen.setEndDate(endDate[0]);
+            EventSystem.editSeries(holders, sGen, eventTitle, start, end, frequency, tagList, endDate[0]);
         }
     }
 
@@ -675,12 +665,9 @@ public class EventCreationGui extends Observable {
      * Save a Event
      */
     private void saveSingleEvent() {
-        event.setTitle(eventTitle);
-        event.setStart(start);
-        event.setEnd(end);
-
-        event.getTags().clear();
-        event.getTags().addAll(tagList);
+        // Every calendar holding the event, including those of users it was shared with, updates its indexes
+        ArrayList<EventSystem> holders = users.findEventSystems(event);
+        EventSystem.editSingleEvent(holders, event, eventTitle, start, end, tagList);
     }
 
     /**
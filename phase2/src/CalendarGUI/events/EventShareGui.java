@@ -48,8 +48,7 @@ class EventShareGui {
 
         Label shareWith = new Label("Share With: ");
         ChoiceBox<String> userChoices = new ChoiceBox<>();
-        String[] strUsers = usersToString(users.getAllUsers());
-        userChoices.getItems().addAll(strUsers);
+        userChoices.getItems().addAll(users.getUserNames());
         HBox whoHBox = new HBox(shareWith, userChoices);
         whoHBox.setAlignment(Pos.CENTER);
 
@@ -60,11 +59,14 @@ class EventShareGui {
                 return;
             }
 
-            int i = 0;
-            while (!userChoices.getValue().equalsIgnoreCase(strUsers[i])) {
-                i++;
+            // Only the selected user is read from the save file
+            User selected;
+            try {
+                selected = users.getUser(userChoices.getValue());
+            } catch (InvalidInputException err) {
+                err.printStackTrace();
+                return;
             }
-            User selected = users.getAllUsers().get(i);
 
             calenders.getItems().clear();
             calenders.getItems().addAll(calendersToString(selected.getListOfCalendarSystem()));
@@ -95,18 +97,6 @@ class EventShareGui {
         stage.showAndWait();
     }
 
-    /**
-     * @param arrayList Users
-     * @return Usernames as a array of strings
-     */
-    private String[] usersToString(ArrayList<User> arrayList) {
-        String[] arr = new String[arrayList.size()];
-        for (int i = 0; i < arrayList.size(); i++) {
-            arr[i] = arrayList.get(i).getUserName();
-        }
-        return arr;
-    }
-
     /**
      * @param arrayList CalenderSystems
      * @return CalenderSystem names as a String array
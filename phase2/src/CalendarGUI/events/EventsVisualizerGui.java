@@ -3,13 +3,20 @@ package CalendarGUI.events;
 import CalendarCore.calendar.CalendarSystem;
 import CalendarCore.dates.DateTime;
 import CalendarCore.events.Event;
+import CalendarCore.events.EventMergeIterator;
 import CalendarCore.events.EventSystem;
 import CalendarCore.users.Users;
+import CalendarGUI.BackgroundQuery;
 import CalendarGUI.CalGui;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
@@ -21,15 +28,86 @@ import javafx.scene.shape.Rectangle;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class EventsVisualizerGui {
+    /**
+     * The number of events shown at once in the future view
+     */
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * The number of days of events kept drawn for each calendar, enough for several months either way
+     */
+    private static final int MAX_CACHED_DAYS = 400;
+
     private CalGui calGui;
 
     private Users users;
     private ArrayList<CalendarSystem> calendarSystems;
     private HashMap<String, Color> colorCalenderMap;
 
+    /**
+     * The events of each calendar on each day as last drawn in the month or week view, by the start of the day in
+     * milliseconds. Only the least recently shown MAX_CACHED_DAYS days are kept.
+     */
+    private HashMap<CalendarSystem, LinkedHashMap<Long, DayCell>> dayCells = new HashMap<>();
+
+    /**
+     * Finds the events for the centre visual in the background. Drawing another centre visual or moving to another
+     * month or week drops what the last one was still finding.
+     */
+    private BackgroundQuery centre = new BackgroundQuery();
+
+    /**
+     * The events of one calendar on one day as drawn, with what they were drawn from
+     */
+    private static class DayCell {
+        private long version;
+        private Color color;
+        private VBox events;
+
+        private DayCell(long version, Color color, VBox events) {
+            this.version = version;
+            this.color = color;
+            this.events = events;
+        }
+    }
+
+    /**
+     * The first page of events of the future view, with the iterator the rest are taken from
+     */
+    private static class FirstPage {
+        private Iterator<Event> rest;
+        private ArrayList<Event> events;
+
+        private FirstPage(Iterator<Event> events) {
+            this.rest = events;
+            this.events = nextPage(events);
+        }
+    }
+
+    /**
+     * The events of one calendar on each of a run of days, with the version of the calendar they were found in
+     */
+    private static class FoundDays {
+        private long version;
+        private ArrayList<ArrayList<Event>> eventsByDay;
+
+        private FoundDays(EventSystem es, DateTime[] dates) {
+            synchronized (es) {
+                version = es.getVersion();
+                eventsByDay = es.getEventsByDay(dates[0], dates[dates.length - 1]);
+            }
+        }
+    }
+
     public EventsVisualizerGui(CalGui calGui, Users users, ArrayList<CalendarSystem> calendarSystems,
                                HashMap<String, Color> colorCalenderMap) {
         this.calGui = calGui;
@@ -42,9 +120,10 @@ public class EventsVisualizerGui {
      * A GridPane showing 1 month of events staring on the first of the month followed by 5 weeks
      *
      * @param startDate The first day of the month
+     * @param days      For each calendar shown, its events on each of the 35 days, from drawDays
      * @return The month
      */
-    private GridPane drawMonth(DateTime startDate) {
+    private GridPane drawMonth(DateTime startDate, VBox[][] days) {
         GridPane grid = new GridPane();
         for (int w = 0; w < 5; w++) {
             for (int d = 0; d < 7; d++) {
@@ -52,12 +131,8 @@ public class EventsVisualizerGui {
                 events.setAlignment(Pos.CENTER);
                 events.getChildren().add(new Label(startDate.toFmtString("E dd/MM/yyyy")));
 
-                for (CalendarSystem cs : calendarSystems) {
-                    EventSystem eventSystem = cs.getEventSystem();
-                    for (Event e : eventSystem.getEventsOnDate(startDate)) {
-                        events.getChildren().add(singleEvent(e, colorCalenderMap.get(cs.getNameOfCalendar()),
-                                190, 30));
-                    }
+                for (VBox[] calendarDays : days) {
+                    events.getChildren().add(calendarDays[w * 7 + d]);
                 }
                 ScrollPane sp = new ScrollPane();
                 sp.setPrefWidth(200);
@@ -74,21 +149,17 @@ public class EventsVisualizerGui {
      * A GridPane showing 1 week of events staring on the monday
      *
      * @param startDate The first day of the week (Sunday)
+     * @param days      For each calendar shown, its events on each of the 7 days, from drawDays
      * @return The week
      */
-    private GridPane drawWeek(DateTime startDate) {
-        startDate = getFirstDay("week", startDate);
+    private GridPane drawWeek(DateTime startDate, VBox[][] days) {
         GridPane grid = new GridPane();
         for (int d = 0; d < 7; d++) {
             VBox events = new VBox();
             events.setAlignment(Pos.CENTER);
             events.getChildren().add(new Label(startDate.toFmtString("E dd/MM/yyyy")));
-            for (CalendarSystem cs : calendarSystems) {
-                EventSystem eventSystem = cs.getEventSystem();
-                for (Event e : eventSystem.getEventsOnDate(startDate)) {
-                    events.getChildren().add(singleEvent(e, colorCalenderMap.get(cs.getNameOfCalendar()),
-                            190, 30));
-                }
+            for (VBox[] calendarDays : days) {
+                events.getChildren().add(calendarDays[d]);
             }
 
             ScrollPane sp = new ScrollPane();
@@ -102,19 +173,218 @@ public class EventsVisualizerGui {
     }
 
     /**
-     * @param events The events to draw
-     * @return A ScrollPane of all the events
+     * Draws the events of each calendar shown on each of a run of days, as drawn in the month and week views. A
+     * calendar's day is only drawn again if the calendar's events or colour changed since it was last drawn, so
+     * redrawing or moving between months reuses the days which did not change. The events of the days which must be
+     * drawn are found in the background with one query per calendar, and the days are drawn once they are found. If
+     * every day is still drawn they are handed over at once.
+     *
+     * @param first   The first day
+     * @param numDays The number of days
+     * @param onDrawn Given, for each calendar shown, in order, a VBox of its events on each day
+     */
+    private void drawDays(DateTime first, int numDays, Consumer<VBox[][]> onDrawn) {
+        DateTime[] dates = new DateTime[numDays];
+        dates[0] = first;
+        for (int d = 1; d < numDays; d++) {
+            dates[d] = dates[d - 1].nextDate();
+        }
+
+        ArrayList<CalendarSystem> shown = new ArrayList<>(calendarSystems);
+        boolean[] changed = new boolean[shown.size()];
+        boolean anyChanged = false;
+        for (int i = 0; i < shown.size(); i++) {
+            changed[i] = !isDrawn(shown.get(i), dates);
+            anyChanged |= changed[i];
+        }
+        if (!anyChanged) {
+            centre.cancel();
+            onDrawn.accept(drawDays(shown, dates, new FoundDays[shown.size()]));
+            return;
+        }
+
+        centre.replace(() -> {
+            FoundDays[] found = new FoundDays[shown.size()];
+            for (int i = 0; i < shown.size(); i++) {
+                if (changed[i]) {
+                    found[i] = new FoundDays(shown.get(i).getEventSystem(), dates);
+                }
+            }
+            return found;
+        }, found -> onDrawn.accept(drawDays(shown, dates, found)));
+    }
+
+    /**
+     * @param cs    A calendar
+     * @param dates Some days
+     * @return True iff the calendar's events on every one of the days are drawn as they are now
+     */
+    private boolean isDrawn(CalendarSystem cs, DateTime[] dates) {
+        long version = cs.getEventSystem().getVersion();
+        Color color = colorCalenderMap.get(cs.getNameOfCalendar());
+        LinkedHashMap<Long, DayCell> cells = dayCells.get(cs);
+        if (cells == null) {
+            return false;
+        }
+        for (DateTime date : dates) {
+            DayCell cell = cells.get(date.getStartOfDay().getTimeInMillis());
+            if (cell == null || cell.version != version || !Objects.equals(cell.color, color)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param shown The calendars shown
+     * @param dates The days
+     * @param found For each calendar, its events on the days, or null if they are drawn already
+     * @return For each calendar, a VBox of its events on each day
+     */
+    private VBox[][] drawDays(ArrayList<CalendarSystem> shown, DateTime[] dates, FoundDays[] found) {
+        VBox[][] drawn = new VBox[shown.size()][dates.length];
+        for (int i = 0; i < shown.size(); i++) {
+            CalendarSystem cs = shown.get(i);
+            Color color = colorCalenderMap.get(cs.getNameOfCalendar());
+            LinkedHashMap<Long, DayCell> cells = dayCells.computeIfAbsent(cs,
+                    k -> new LinkedHashMap<Long, DayCell>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<Long, DayCell> eldest) {
+                            return size() > MAX_CACHED_DAYS;
+                        }
+                    });
+
+            for (int d = 0; d < dates.length; d++) {
+                long day = dates[d].getStartOfDay().getTimeInMillis();
+                DayCell cell = cells.get(day);
+                if (found[i] == null && cell == null) {
+                    // Only if the day was dropped from the cache since it was checked
+                    found[i] = new FoundDays(cs.getEventSystem(), dates);
+                }
+                if (found[i] != null && (cell == null || cell.version != found[i].version
+                        || !Objects.equals(cell.color, color))) {
+                    VBox events = new VBox();
+                    events.setAlignment(Pos.CENTER);
+                    for (Event e : found[i].eventsByDay.get(d)) {
+                        events.getChildren().add(singleEvent(e, color, 190, 30));
+                    }
+                    cell = new DayCell(found[i].version, color, events);
+                    cells.put(day, cell);
+                }
+                drawn[i][d] = cell.events;
+            }
+        }
+        return drawn;
+    }
+
+    /**
+     * @param events Finds the events to draw. It is run in the background.
+     * @return A list which shows all the events once they are found. Only the rows in view are drawn, so it stays
+     * quick however many there are.
+     */
+    private ListView<Event> drawList(Supplier<ArrayList<Event>> events) {
+        ListView<Event> list = eventList(null);
+        centre.replace(events, list.getItems()::setAll);
+        return list;
+    }
+
+    /**
+     * @param events Finds the events to draw, in order. It is run in the background, as is taking each page of
+     *               PAGE_SIZE events from it.
+     * @return A list which shows the first page of events once it is found, and takes the next page whenever its
+     * last event comes into view
+     */
+    private ListView<Event> drawPagedList(Supplier<Iterator<Event>> events) {
+        ObservableList<Event> items = FXCollections.observableArrayList();
+        ArrayList<Iterator<Event>> rest = new ArrayList<>();
+        ListView<Event> list = eventList(() -> {
+            // Waits until the list has finished laying out its rows before adding more
+            int size = items.size();
+            Platform.runLater(() -> {
+                if (items.size() == size && !rest.isEmpty()) {
+                    addPage(items, rest.get(0));
+                }
+            });
+        });
+        list.setItems(items);
+        centre.replace(() -> new FirstPage(events.get()), first -> {
+            rest.add(first.rest);
+            items.addAll(first.events);
+        });
+        return list;
+    }
+
+    /**
+     * Takes the next page of events in the background and adds it to a list
+     *
+     * @param items  The list to add to
+     * @param events The events to take the page from
+     */
+    private void addPage(ObservableList<Event> items, Iterator<Event> events) {
+        centre.replace(() -> nextPage(events), items::addAll);
+    }
+
+    /**
+     * @param events The events to take the page from
+     * @return The next PAGE_SIZE events, or fewer if there are no more
      */
-    private ScrollPane drawList(ArrayList<Event> events) {
-        ScrollPane sp = new ScrollPane();
-        sp.setPrefHeight(1500);
-        sp.setPrefWidth(1400);
-        VBox vBox = new VBox();
-        for (Event e : events) {
-            vBox.getChildren().add(singleEvent(e, Color.LIGHTBLUE, 1350, 40));
+    private static ArrayList<Event> nextPage(Iterator<Event> events) {
+        ArrayList<Event> page = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE && events.hasNext(); i++) {
+            page.add(events.next());
+        }
+        return page;
+    }
+
+    /**
+     * @param onLastShown Run when the last event comes into view, or null
+     * @return An empty list of events which draws the events in view and reuses their rows as it scrolls
+     */
+    private ListView<Event> eventList(Runnable onLastShown) {
+        ListView<Event> list = new ListView<>();
+        list.setPrefHeight(1500);
+        list.setPrefWidth(1400);
+        list.setFixedCellSize(44);
+        list.setCellFactory(view -> new EventCell(Color.LIGHTBLUE, 1350, 40, onLastShown));
+        return list;
+    }
+
+    /**
+     * A row of a list of events, drawn the same way as singleEvent. The row is reused for whichever event scrolls
+     * into it.
+     */
+    private class EventCell extends ListCell<Event> {
+        private Label title = new Label();
+        private StackPane pane = new StackPane();
+        private Runnable onLastShown;
+
+        /**
+         * @param c           The color for the events
+         * @param width       The box width
+         * @param height      The box height
+         * @param onLastShown Run when this row shows the last event of the list, or null
+         */
+        private EventCell(Color c, int width, int height, Runnable onLastShown) {
+            this.onLastShown = onLastShown;
+            Rectangle rec = new Rectangle(width, height, c);
+            rec.setStroke(Color.BLACK);
+            pane.getChildren().addAll(rec, title);
+            pane.setOnMouseClicked(event -> editEvent(getItem()));
+        }
+
+        @Override
+        protected void updateItem(Event e, boolean empty) {
+            super.updateItem(e, empty);
+            if (empty || e == null) {
+                setGraphic(null);
+                return;
+            }
+            title.setText(e.getTitle());
+            setGraphic(pane);
+            if (onLastShown != null && getIndex() == getListView().getItems().size() - 1) {
+                onLastShown.run();
+            }
         }
-        sp.setContent(vBox);
-        return sp;
     }
 
     /**
@@ -125,42 +395,58 @@ public class EventsVisualizerGui {
      * @return Returns the visual for the centre
      */
     public Node drawEvents(DateTime startDate, String field) {
-        ArrayList<Event> lst = new ArrayList<>();
+        // The calendars shown are copied, since they may change while the events are found in the background
+        ArrayList<CalendarSystem> shown = new ArrayList<>(calendarSystems);
 
         switch (field) {
             case "day":
-                for (CalendarSystem cs : calendarSystems) {
-                    lst.addAll(cs.getEventSystem().getEventsOnDate(startDate));
-                }
-                return drawList(lst);
+                return drawList(() -> {
+                    ArrayList<Event> lst = new ArrayList<>();
+                    for (CalendarSystem cs : shown) {
+                        lst.addAll(cs.getEventSystem().getEventsOnDate(startDate));
+                    }
+                    return lst;
+                });
             case "week":
                 return weekControlPanel(startDate);
             case "month":
                 return monthControlPanel(startDate);
             case "past":
-                for (CalendarSystem cs : calendarSystems) {
-                    lst.addAll(cs.getEventSystem().getPastEvents());
-                }
-                return drawList(lst);
+                return drawList(() -> {
+                    ArrayList<Event> lst = new ArrayList<>();
+                    for (CalendarSystem cs : shown) {
+                        lst.addAll(cs.getEventSystem().getPastEvents());
+                    }
+                    return lst;
+                });
             case "future":
-                for (CalendarSystem cs : calendarSystems) {
-                    lst.addAll(cs.getEventSystem().getUpcomingEvents());
-                }
-                return drawList(lst);
+                return drawPagedList(() -> {
+                    ArrayList<Iterator<Event>> upcoming = new ArrayList<>();
+                    for (CalendarSystem cs : shown) {
+                        upcoming.add(cs.getEventSystem().getUpcomingIterator(startDate));
+                    }
+                    return new EventMergeIterator(upcoming);
+                });
             case "current":
-                for (CalendarSystem cs : calendarSystems) {
-                    lst.addAll(cs.getEventSystem().getOngoingEvents());
-                }
-                return drawList(lst);
+                return drawList(() -> {
+                    ArrayList<Event> lst = new ArrayList<>();
+                    for (CalendarSystem cs : shown) {
+                        lst.addAll(cs.getEventSystem().getOngoingEvents());
+                    }
+                    return lst;
+                });
             default:
                 DateTime beginning = new DateTime();
                 beginning.setTimeInMillis(0);
                 DateTime end = new DateTime();
 
-                for (CalendarSystem cs : calendarSystems) {
-                    lst.addAll(cs.getEventSystem().getEventsBetween(beginning, end));
-                }
-                return drawList(lst);
+                return drawList(() -> {
+                    ArrayList<Event> lst = new ArrayList<>();
+                    for (CalendarSystem cs : shown) {
+                        lst.addAll(cs.getEventSystem().getEventsBetween(beginning, end));
+                    }
+                    return lst;
+                });
         }
     }
 
@@ -199,13 +485,20 @@ public class EventsVisualizerGui {
         Label t = new Label(e.getTitle());
         StackPane s = new StackPane();
         s.getChildren().addAll(rec, t);
-        s.setOnMouseClicked(event -> {
-            EventCreationGui ecg = new EventCreationGui(calGui, users, calendarSystems, e);
-            ecg.showAndWait();
-        });
+        s.setOnMouseClicked(event -> editEvent(e));
         return s;
     }
 
+    /**
+     * Opens an event to be edited
+     *
+     * @param e The event
+     */
+    private void editEvent(Event e) {
+        EventCreationGui ecg = new EventCreationGui(calGui, users, calendarSystems, e);
+        ecg.showAndWait();
+    }
+
     /**
      * @param startDate The start date of the month
      * @return A VBox for displaying month as well as its controls
@@ -225,23 +518,33 @@ public class EventsVisualizerGui {
             int n = num.decrementAndGet();
             DateTime date = getFirstDay("month", startDate.offsetMonths(n));
             current.setText(date.toSimpleString());
-            month.getChildren().clear();
-            month.getChildren().addAll(controls, drawMonth(date));
+            showMonth(month, controls, date);
         });
 
         next.setOnAction(event -> {
             int n = num.incrementAndGet();
             DateTime date = getFirstDay("month", startDate.offsetMonths(n));
             current.setText(date.toSimpleString());
-            month.getChildren().clear();
-            month.getChildren().addAll(controls, drawMonth(date));
+            showMonth(month, controls, date);
         });
 
-        month.getChildren().addAll(controls, drawMonth(getFirstDay("month", startDate)));
+        month.getChildren().add(controls);
+        showMonth(month, controls, getFirstDay("month", startDate));
 
         return month;
     }
 
+    /**
+     * Shows a month below its controls once its events are found. The month shown before stays until then.
+     *
+     * @param month    The VBox of the month and its controls
+     * @param controls The controls
+     * @param date     The first day of the month
+     */
+    private void showMonth(VBox month, HBox controls, DateTime date) {
+        drawDays(date, 35, days -> month.getChildren().setAll(controls, drawMonth(date, days)));
+    }
+
     /**
      * @param startDate The start date of the week
      * @return A VBox for displaying week as well as its controls
@@ -261,19 +564,29 @@ public class EventsVisualizerGui {
             int n = num.decrementAndGet();
             DateTime date = getFirstDay("week", startDate.offsetWeeks(n));
             current.setText(date.toSimpleString());
-            week.getChildren().clear();
-            week.getChildren().addAll(controls, drawWeek(date));
+            showWeek(week, controls, date);
         });
 
         next.setOnAction(event -> {
             int n = num.incrementAndGet();
             DateTime date = getFirstDay("week", startDate.offsetWeeks(n));
             current.setText(date.toSimpleString());
-            week.getChildren().clear();
-            week.getChildren().addAll(controls, drawWeek(date));
+            showWeek(week, controls, date);
         });
 
-        week.getChildren().addAll(controls, drawWeek(getFirstDay("week", startDate)));
+        week.getChildren().add(controls);
+        showWeek(week, controls, getFirstDay("week", startDate));
         return week;
     }
+
+    /**
+     * Shows a week below its controls once its events are found. The week shown before stays until then.
+     *
+     * @param week     The VBox of the week and its controls
+     * @param controls The controls
+     * @param date     The Sunday of the week
+     */
+    private void showWeek(VBox week, HBox controls, DateTime date) {
+        drawDays(date, 7, days -> week.getChildren().setAll(controls, drawWeek(date, days)));
+    }
 }
@@ -29,12 +29,8 @@ public class MemoCreatorGui {
         }
 
         // Loads in the old memo
-        if (mSys.getMemo(event.getId()) == null) {
-            isNew = true;
-        } else {
-            isNew = false;
-            memo = mSys.getMemo(event.getId());
-        }
+        memo = mSys.getMemo(event.getId());
+        isNew = memo == null;
 
         this.stage = new Stage();
     }
@@ -64,7 +60,7 @@ public class MemoCreatorGui {
                 memo = (Memo) memoChoice.getValue();
                 mSys.addEventToMemo(memo, event.getId());
             } else {
-                mSys.removeEventInMemo(event.getId());
+                mSys.removeEventFromMemo(memo, event.getId());
             }
             stage.close();
         });
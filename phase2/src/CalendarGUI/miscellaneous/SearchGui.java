@@ -6,7 +6,9 @@ import CalendarCore.dates.DateTime;
 import CalendarCore.Searcher;
 import CalendarCore.events.Event;
 import CalendarCore.memos.Memo;
+import CalendarCore.search.CalendarSearch;
 import CalendarCore.users.Users;
+import CalendarGUI.BackgroundQuery;
 import CalendarGUI.CalGui;
 import CalendarGUI.events.EventCreationGui;
 import javafx.geometry.Pos;
@@ -26,6 +28,16 @@ public class SearchGui {
     private CalGui calGui;
     private Users users;
 
+    /**
+     * Runs the search in the background. Searching again drops the results of a search still running.
+     */
+    private BackgroundQuery query = new BackgroundQuery();
+
+    /**
+     * The most events a text search shows, best matches first
+     */
+    private static final int MAX_RESULTS = 100;
+
     public SearchGui(Searcher searcher, ArrayList<CalendarSystem> calendarSystems, CalGui calGui, Users users) {
         this.searcher = searcher;
         this.calendarSystems = calendarSystems;
@@ -43,7 +55,7 @@ public class SearchGui {
 
         Label text = new Label("Search by");
         ChoiceBox<String> choice = new ChoiceBox<>();
-        choice.getItems().addAll("Start Date", "End Date", "Memo Text", "Tag");
+        choice.getItems().addAll("Text", "Start Date", "End Date", "Memo Text", "Tag");
 
         Button search = new Button("Search");
 
@@ -55,31 +67,49 @@ public class SearchGui {
 
         search.setOnAction(event -> {
             events.getChildren().clear();
-            ArrayList<Event> lst = new ArrayList<>();
+            // The calendars are copied, since they may change while the search runs in the background
+            ArrayList<CalendarSystem> shown = new ArrayList<>(calendarSystems);
             switch (choice.getValue()) {
+                case "Text":
+                    String words = input.getText();
+                    query.replace(() -> CalendarSearch.search(shown, words, MAX_RESULTS), lst -> fill(events, lst));
+                    break;
                 case "Start Date":
                     if (datePicker.getValue() != null) {
                         DateTime start = convertDate(datePicker.getValue());
-                        for (CalendarSystem cs : calendarSystems) {
-                            lst.addAll(searcher.eventsFromStartDatetime(cs.getEventSystem().getEventsBetween(start,
-                                    start), start));
-                        }
+                        query.replace(() -> {
+                            ArrayList<Event> lst = new ArrayList<>();
+                            for (CalendarSystem cs : shown) {
+                                lst.addAll(searcher.eventsFromStartDatetime(
+                                        cs.getEventSystem().getEventsBetween(start, start), start));
+                            }
+                            return lst;
+                        }, lst -> fill(events, lst));
+                    } else {
+                        query.cancel();
                     }
-                    fill(events, lst);
                     break;
                 case "End Date":
                     if (datePicker.getValue() != null) {
                         DateTime end = convertDate(datePicker.getValue());
-                        for (CalendarSystem cs : calendarSystems) {
-                            lst.addAll(searcher.eventsFromEndDatetime(cs.getEventSystem().getEventsBetween(end, end),
-                                    end));
-                        }
+                        query.replace(() -> {
+                            ArrayList<Event> lst = new ArrayList<>();
+                            for (CalendarSystem cs : shown) {
+                                lst.addAll(searcher.eventsFromEndDatetime(
+                                        cs.getEventSystem().getEventsBetween(end, end), end));
+                            }
+                            return lst;
+                        }, lst -> fill(events, lst));
+                    } else {
+                        query.cancel();
                     }
-                    fill(events, lst);
                     break;
                 case "Memo Text":
+                    query.cancel();
                     if (input.getText().length() > 0) {
-                        for (CalendarSystem cs : calendarSystems) {
+                        // Only looks up a memo and its events by id, which is quick enough to do here
+                        ArrayList<Event> lst = new ArrayList<>();
+                        for (CalendarSystem cs : shown) {
                             Memo m = cs.getMemoSystem().getMemoFromText(input.getText());
                             if (m != null) {
                                 for (long i : m.getListOfEventID()) {
@@ -91,26 +121,29 @@ public class SearchGui {
                     }
                     break;
                 case "Tag":
-                    for (CalendarSystem cs : calendarSystems) {
-                        CalendarClock calendarClock = new CalendarClock();
-                        // Creating start and end times for the method getEventsBetween()
-                        DateTime start = calendarClock.getTime();
-                        DateTime end = calendarClock.getTime();
-                        long offset = (long) (12 * 31 * 24 * 60 * 60);
-                        start.setTimeInMillis(start.getTimeInMillis() - offset);
-                        end.setTimeInMillis(end.getTimeInMillis() + offset);
-
-
-                        // This will only get generated events from a 2 year window around today.
-                        lst.addAll(searcher.getEventByTag(cs.getEventSystem().getEventsBetween(start, end),
-                                input.getText()));
-                    }
-                    fill(events, lst);
+                    String tag = input.getText();
+                    // The clock is read here, since it is moved on this thread
+                    CalendarClock calendarClock = new CalendarClock();
+                    // Creating start and end times for the method getEventsBetween()
+                    DateTime start = calendarClock.getTime();
+                    DateTime end = calendarClock.getTime();
+                    long offset = (long) (12 * 31 * 24 * 60 * 60);
+                    start.setTimeInMillis(start.getTimeInMillis() - offset);
+                    end.setTimeInMillis(end.getTimeInMillis() + offset);
+
+                    query.replace(() -> {
+                        ArrayList<Event> lst = new ArrayList<>();
+                        for (CalendarSystem cs : shown) {
+                            // This will only get generated events from a 2 year window around today.
+                            lst.addAll(cs.getEventSystem().getEventsByTag(tag, start, end));
+                        }
+                        return lst;
+                    }, lst -> fill(events, lst));
             }
         });
 
         choice.setOnAction(event -> {
-            if (choice.getValue().equalsIgnoreCase("Tag") |
+            if (choice.getValue().equalsIgnoreCase("Text") | choice.getValue().equalsIgnoreCase("Tag") |
                     choice.getValue().equalsIgnoreCase("Memo Text")) {
                 control.getChildren().clear();
                 control.getChildren().addAll(text, choice, input, search);